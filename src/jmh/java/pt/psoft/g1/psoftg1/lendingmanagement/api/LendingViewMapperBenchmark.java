@@ -0,0 +1,44 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.readermanagement.model.BirthDate;
+import pt.psoft.g1.psoftg1.readermanagement.model.PhoneNumber;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderNumber;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LendingViewMapperBenchmark {
+
+    private final LendingViewMapper mapper = new LendingViewMapperImpl();
+    private Lending lending;
+
+    @Setup
+    public void setUp() {
+        // the links are built from the current request, as they are when mapping in a controller
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        ReaderDetails reader = new ReaderDetails(new ReaderNumber(2024, 1), new BirthDate(2000, 1, 1),
+                new PhoneNumber("912345678"), "reader@mail.com", "Reader", true, false, false, null, List.of());
+        LocalDate startDate = LocalDate.now().minusDays(30);
+        lending = new Lending("9782826012092", "Title", reader, 2024, 1, startDate, startDate.plusDays(20), 15, 50);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public LendingView toLendingView() {
+        return mapper.toLendingView(lending);
+    }
+}
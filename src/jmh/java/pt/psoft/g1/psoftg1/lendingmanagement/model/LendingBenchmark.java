@@ -0,0 +1,51 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import org.openjdk.jmh.annotations.*;
+import pt.psoft.g1.psoftg1.readermanagement.model.BirthDate;
+import pt.psoft.g1.psoftg1.readermanagement.model.PhoneNumber;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderNumber;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LendingBenchmark {
+
+    private ReaderDetails reader;
+    private LocalDate startDate;
+    private Lending outstanding;
+    private Lending returnedLate;
+
+    @Setup
+    public void setUp() {
+        reader = new ReaderDetails(new ReaderNumber(2024, 1), new BirthDate(2000, 1, 1), new PhoneNumber("912345678"),
+                "reader@mail.com", "Reader", true, false, false, null, List.of());
+        startDate = LocalDate.now().minusDays(30);
+        outstanding = new Lending("9782826012092", "Title", reader, 2024, 1, startDate, null, 15, 50);
+        returnedLate = new Lending("9782826012092", "Title", reader, 2024, 2, startDate, startDate.plusDays(20), 15, 50);
+    }
+
+    @Benchmark
+    public Lending construct() {
+        return new Lending("9782826012092", "Title", reader, 2024, 3, startDate, null, 15, 50);
+    }
+
+    @Benchmark
+    public int daysDelayed() {
+        return outstanding.getDaysDelayed();
+    }
+
+    @Benchmark
+    public Fine fine() {
+        return new Fine(returnedLate);
+    }
+
+    @Benchmark
+    public LendingNumber parseLendingNumber() {
+        return new LendingNumber("2024/1234");
+    }
+}
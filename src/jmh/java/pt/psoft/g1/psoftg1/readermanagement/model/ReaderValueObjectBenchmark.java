@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.readermanagement.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The value objects built for every reader event. Run with {@code -Djmh.args="-prof gc ReaderValueObject"}
+ * to also see the bytes allocated per call; the {@code Baseline} methods are the parsing they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReaderValueObjectBenchmark {
+
+    @Benchmark
+    public BirthDate birthDate() {
+        return new BirthDate("1990-06-15");
+    }
+
+    /** {@code BirthDate(String)} as it was: a regex match and a split before parsing the fields. */
+    @Benchmark
+    public BirthDate birthDateBaseline() {
+        final String birthDate = "1990-06-15";
+        if (!birthDate.matches("\\d{4}-\\d{2}-\\d{2}"))
+            throw new IllegalArgumentException("Provided birth date is not in a valid format. Use yyyy-MM-dd");
+        final String[] dateParts = birthDate.split("-");
+        return new BirthDate(Integer.parseInt(dateParts[0]), Integer.parseInt(dateParts[1]), Integer.parseInt(dateParts[2]));
+    }
+
+    /** The prefix and length check PhoneNumber always had, and still has; it is both before and after. */
+    @Benchmark
+    public PhoneNumber phoneNumber() {
+        return new PhoneNumber("912345678");
+    }
+
+    @Benchmark
+    public EmailAddress emailAddress() {
+        return new EmailAddress("manuel.pina@example.com");
+    }
+}
@@ -0,0 +1,65 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AmqpJsonCodecBenchmark {
+
+    private AmqpJsonCodec codec;
+    private LendingViewAMQP lending;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured like the ObjectMapper Spring Boot builds for the application
+        codec = new AmqpJsonCodec(JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+        lending = new LendingViewAMQP("2024/1234", "9782826012092", "2024/1", LocalDate.of(2024, 3, 1),
+                "Great book", 3L, true);
+        json = codec.encode(lending);
+    }
+
+    @Benchmark
+    public byte[] encodeLending() throws IOException {
+        return codec.encode(lending);
+    }
+
+    @Benchmark
+    public LendingViewAMQP decodeLending() throws IOException {
+        return codec.decode(json, LendingViewAMQP.class);
+    }
+
+    /** What the receivers and publishers did before the codec: a new mapper and a {@code String} per message. */
+    @Benchmark
+    public byte[] encodeLendingBaseline() throws IOException {
+        final String json = baselineMapper().writeValueAsString(lending);
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public LendingViewAMQP decodeLendingBaseline() throws IOException {
+        final String received = new String(json, StandardCharsets.UTF_8);
+        return baselineMapper().readValue(received, LendingViewAMQP.class);
+    }
+
+    // the time module is the only addition: without it the mapper cannot handle the returned date at all
+    private static ObjectMapper baselineMapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
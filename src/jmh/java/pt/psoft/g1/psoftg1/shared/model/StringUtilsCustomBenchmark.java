@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Run with {@code -Djmh.args="-prof gc StringUtilsCustom"} to also see the bytes allocated per call;
+ * {@code isAlphanumericRegex} is the regex the scanner replaced, kept as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringUtilsCustomBenchmark {
+
+    @Param({"Manuel António Pina", "Robert'); DROP TABLE readers;--"})
+    public String input;
+
+    @Benchmark
+    public boolean isAlphanumeric() {
+        return StringUtilsCustom.isAlphanumeric(input);
+    }
+
+    @Benchmark
+    public boolean isAlphanumericRegex() {
+        return Pattern.matches("^[\\p{L}0-9\\s'-]*$", input);
+    }
+
+    @Benchmark
+    public Object name() {
+        try {
+            return new Name(input);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
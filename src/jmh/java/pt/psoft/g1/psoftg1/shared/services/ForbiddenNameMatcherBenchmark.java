@@ -0,0 +1,59 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The matcher against a check of every forbidden name in turn, which is the per-row work the replaced
+ * {@code :name LIKE CONCAT('%', fn.forbiddenName, '%')} query did, before counting its round trip.
+ * {@code copies} grows the list past the bundled forbiddenNames.txt by adding numbered variants of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ForbiddenNameMatcherBenchmark {
+
+    @Param({"1", "100"})
+    public int copies;
+
+    @Param({"Manuel Antonio Pina", "Super Batman Junior"})
+    public String name;
+
+    private List<String> forbiddenNames;
+    private ForbiddenNameMatcher matcher;
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<String> bundled = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream("forbiddenNames.txt"), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(bundled::add);
+        }
+        forbiddenNames = new ArrayList<>(bundled);
+        for (int copy = 1; copy < copies; copy++)
+            for (String forbidden : bundled)
+                forbiddenNames.add(forbidden + copy);
+        matcher = ForbiddenNameMatcher.of(forbiddenNames);
+    }
+
+    @Benchmark
+    public List<String> matcher() {
+        return matcher.findContainedIn(name);
+    }
+
+    @Benchmark
+    public List<String> eachForbiddenName() {
+        final List<String> found = new ArrayList<>();
+        for (String forbidden : forbiddenNames)
+            if (name.contains(forbidden))
+                found.add(forbidden);
+        return found;
+    }
+}
@@ -1,20 +1,30 @@
 package pt.psoft.g1.psoftg1.configuration;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import pt.psoft.g1.psoftg1.lendingmanagement.api.BookEventRabbitmqReceiver;
 import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingEventRabbitmqReceiver;
-import pt.psoft.g1.psoftg1.lendingmanagement.repositories.BookDetailsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.BookDetailsSyncService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingInbox;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
 import pt.psoft.g1.psoftg1.readermanagement.api.ReaderEventRabbitmqReceiver;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderNumberCache;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.shared.api.AmqpJsonCodec;
 import pt.psoft.g1.psoftg1.shared.model.BookEvents;
 import pt.psoft.g1.psoftg1.shared.model.LendingEvents;
 import pt.psoft.g1.psoftg1.shared.model.ReaderEvents;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Profile("!test")
 @Configuration
 public class RabbitmqClientConfig {
@@ -28,73 +38,162 @@ public class RabbitmqClientConfig {
     @Bean(name = "bookDirectExchange")
     public DirectExchange directBooks() { return new DirectExchange("LMS.books"); }
 
+    /** Receives messages a listener rejected; each consumer queue has its own dead-letter queue bound here. */
+    @Bean(name = "deadLetterExchange")
+    public DirectExchange deadLetterExchange() { return new DirectExchange("LMS.dlx"); }
+
+    /**
+     * Keeps the due-soon and overdue announcements, which none of this service's queue groups consume,
+     * until whatever notifies the readers does.
+     */
+    @Bean
+    public Declarables lendingDueDateQueues(@Qualifier("directExchangeLendings") DirectExchange direct) {
+        Queue dueSoon = QueueBuilder.durable("LMS.lendings.due-soon").build();
+        Queue overdue = QueueBuilder.durable("LMS.lendings.overdue").build();
+        return new Declarables(dueSoon, overdue,
+                BindingBuilder.bind(dueSoon).to(direct).with(LendingEvents.LENDINGS_DUE_SOON),
+                BindingBuilder.bind(overdue).to(direct).with(LendingEvents.LENDINGS_OVERDUE));
+    }
+
+    @Bean(name = "lendingContainerFactory")
+    public SimpleRabbitListenerContainerFactory lendingContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${amqp.lending.prefetch:50}") int prefetch,
+            @Value("${amqp.lending.concurrency:1}") int concurrency,
+            @Value("${amqp.lending.max-concurrency:4}") int maxConcurrency) {
+        return listenerContainerFactory(configurer, connectionFactory, prefetch, concurrency, maxConcurrency);
+    }
+
+    @Bean(name = "readerContainerFactory")
+    public SimpleRabbitListenerContainerFactory readerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${amqp.reader.prefetch:50}") int prefetch,
+            @Value("${amqp.reader.concurrency:1}") int concurrency,
+            @Value("${amqp.reader.max-concurrency:4}") int maxConcurrency) {
+        return listenerContainerFactory(configurer, connectionFactory, prefetch, concurrency, maxConcurrency);
+    }
+
+    /**
+     * Listener container for the book events: delivers up to {@code batchSize} messages per call, or fewer
+     * if no new message arrives within {@code maxWaitMs}.
+     */
+    @Bean(name = "bookBatchContainerFactory")
+    public SimpleRabbitListenerContainerFactory bookBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${amqp.book.batch-size:100}") int batchSize,
+            @Value("${amqp.book.batch-max-wait-ms:500}") long maxWaitMs,
+            @Value("${amqp.book.concurrency:1}") int concurrency,
+            @Value("${amqp.book.max-concurrency:2}") int maxConcurrency) {
+        // the broker must be allowed to push at least a full batch
+        SimpleRabbitListenerContainerFactory factory = listenerContainerFactory(configurer, connectionFactory,
+                Math.max(batchSize, 250), concurrency, maxConcurrency);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(maxWaitMs);
+        return factory;
+    }
+
+    /**
+     * Consumers are added, up to {@code maxConcurrency}, while messages keep arriving and removed again when
+     * idle. A message whose listener throws is not requeued but dead-lettered.
+     */
+    private static SimpleRabbitListenerContainerFactory listenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            int prefetch, int concurrency, int maxConcurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPrefetchCount(prefetch);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    /**
+     * Durable queues named {@code <queue-group>.<event>}, so messages published while the service is down
+     * wait for it. Every instance with its own database must use its own group, since each needs every
+     * event; instances sharing a database share the group and compete for the messages.
+     */
     @Configuration
     static class ReceiverConfig {
-        @Bean(name = "autoDeleteQueue_Lending_Created")
-        public Queue autoDeleteQueue_Lending_Created() { return new AnonymousQueue(); }
-        // ... (other queues defined similarly) ...
-        @Bean(name = "autoDeleteQueue_Lending_Updated")
-        public Queue autoDeleteQueue_Lending_Updated() { return new AnonymousQueue(); }
-        @Bean(name = "autoDeleteQueue_Lending_With_Recommendation")
-        public Queue autoDeleteQueue_Lending_With_Recommendation() { return new AnonymousQueue(); }
-        @Bean(name = "autoDeleteQueue_Lending_Recommendation_Failed")
-        public Queue autoDeleteQueue_Lending_Recommendation_Failed() { return new AnonymousQueue(); }
-        @Bean(name = "autoDeleteQueue_Reader_Created")
-        public Queue autoDeleteQueue_Reader_Created() { return new AnonymousQueue(); }
-        @Bean(name = "autoDeleteQueue_Reader_Updated")
-        public Queue autoDeleteQueue_Reader_Updated() { return new AnonymousQueue(); }
-        @Bean(name = "autoDeleteQueue_Book_Created")
-        public Queue autoDeleteQueue_Book_Created() { return new AnonymousQueue(); }
-        @Bean(name = "autoDeleteQueue_Book_Updated")
-        public Queue autoDeleteQueue_Book_Updated() { return new AnonymousQueue(); }
+        @Value("${amqp.queue-group:${spring.application.name}}")
+        private String queueGroup;
+
+        @Bean(name = "queue_Lending_Created")
+        public Queue queue_Lending_Created() { return durableQueue("lending.created"); }
+        @Bean(name = "queue_Lending_Updated")
+        public Queue queue_Lending_Updated() { return durableQueue("lending.updated"); }
+        @Bean(name = "queue_Reader_Created")
+        public Queue queue_Reader_Created() { return durableQueue("reader.created"); }
+        @Bean(name = "queue_Reader_Updated")
+        public Queue queue_Reader_Updated() { return durableQueue("reader.updated"); }
+        @Bean(name = "queue_Book_Created")
+        public Queue queue_Book_Created() { return durableQueue("book.created"); }
+        @Bean(name = "queue_Book_Updated")
+        public Queue queue_Book_Updated() { return durableQueue("book.updated"); }
 
         @Bean
-        public Binding binding1(@Qualifier("directExchangeLendings") DirectExchange direct, @Qualifier("autoDeleteQueue_Lending_Created") Queue queue) {
-            return BindingBuilder.bind(queue).to(direct).with(LendingEvents.LENDING_CREATED);
+        public Declarables deadLetterQueues(@Qualifier("deadLetterExchange") DirectExchange dlx, List<Queue> queues) {
+            List<Declarable> declarables = new ArrayList<>();
+            for (Queue queue : queues) {
+                Queue dlq = QueueBuilder.durable(queue.getName() + ".dlq").build();
+                declarables.add(dlq);
+                declarables.add(BindingBuilder.bind(dlq).to(dlx).with(queue.getName()));
+            }
+            return new Declarables(declarables);
         }
-        // ... (other bindings) ...
-        @Bean
-        public Binding binding2(@Qualifier("directExchangeLendings") DirectExchange direct, @Qualifier("autoDeleteQueue_Lending_Updated") Queue queue) {
-            return BindingBuilder.bind(queue).to(direct).with(LendingEvents.LENDING_UPDATED);
+
+        private Queue durableQueue(String event) {
+            String name = queueGroup + "." + event;
+            return QueueBuilder.durable(name)
+                    .deadLetterExchange("LMS.dlx")
+                    .deadLetterRoutingKey(name)
+                    .build();
         }
+
         @Bean
-        public Binding binding3(@Qualifier("directExchangeLendings") DirectExchange direct, @Qualifier("autoDeleteQueue_Lending_With_Recommendation") Queue queue) {
-            return BindingBuilder.bind(queue).to(direct).with(LendingEvents.LENDING_UPDATED_WITH_RECOMMENDATION);
+        public Binding binding1(@Qualifier("directExchangeLendings") DirectExchange direct, @Qualifier("queue_Lending_Created") Queue queue) {
+            return BindingBuilder.bind(queue).to(direct).with(LendingEvents.LENDING_CREATED);
         }
         @Bean
-        public Binding binding10(@Qualifier("directExchangeLendings") DirectExchange direct, @Qualifier("autoDeleteQueue_Lending_Recommendation_Failed") Queue queue) {
-            return BindingBuilder.bind(queue).to(direct).with(LendingEvents.LENDING_RECOMMENDATION_FAILED);
+        public Binding binding2(@Qualifier("directExchangeLendings") DirectExchange direct, @Qualifier("queue_Lending_Updated") Queue queue) {
+            return BindingBuilder.bind(queue).to(direct).with(LendingEvents.LENDING_UPDATED);
         }
         @Bean
-        public Binding binding4(@Qualifier("directExchangeUsers") DirectExchange direct, @Qualifier("autoDeleteQueue_Reader_Created") Queue queue) {
+        public Binding binding4(@Qualifier("directExchangeUsers") DirectExchange direct, @Qualifier("queue_Reader_Created") Queue queue) {
             return BindingBuilder.bind(queue).to(direct).with(ReaderEvents.READER_CREATED);
         }
         @Bean
-        public Binding binding5(@Qualifier("directExchangeUsers") DirectExchange direct, @Qualifier("autoDeleteQueue_Reader_Updated") Queue queue) {
+        public Binding binding5(@Qualifier("directExchangeUsers") DirectExchange direct, @Qualifier("queue_Reader_Updated") Queue queue) {
             return BindingBuilder.bind(queue).to(direct).with(ReaderEvents.READER_UPDATED);
         }
         @Bean
-        public Binding binding6(@Qualifier("bookDirectExchange") DirectExchange direct, @Qualifier("autoDeleteQueue_Book_Created") Queue queue) {
+        public Binding binding6(@Qualifier("bookDirectExchange") DirectExchange direct, @Qualifier("queue_Book_Created") Queue queue) {
             return BindingBuilder.bind(queue).to(direct).with(BookEvents.BOOK_CREATED);
         }
         @Bean
-        public Binding binding7(@Qualifier("bookDirectExchange") DirectExchange direct, @Qualifier("autoDeleteQueue_Book_Updated") Queue queue) {
+        public Binding binding7(@Qualifier("bookDirectExchange") DirectExchange direct, @Qualifier("queue_Book_Updated") Queue queue) {
             return BindingBuilder.bind(queue).to(direct).with(BookEvents.BOOK_UPDATED);
         }
 
         @Bean(name = "LendingEventRabbitmqReceiver")
-        public LendingEventRabbitmqReceiver lendingReceiver(LendingService lendingService) {
-            return new LendingEventRabbitmqReceiver(lendingService);
+        public LendingEventRabbitmqReceiver lendingReceiver(LendingService lendingService, AmqpJsonCodec amqpJsonCodec,
+                                                            LendingInbox lendingInbox) {
+            return new LendingEventRabbitmqReceiver(lendingService, amqpJsonCodec, lendingInbox);
         }
 
         @Bean(name = "ReaderEventRabbitmqReceiver")
-        public ReaderEventRabbitmqReceiver readerReceiver(ReaderService readerService) {
-            return new ReaderEventRabbitmqReceiver(readerService);
+        public ReaderEventRabbitmqReceiver readerReceiver(ReaderService readerService, AmqpJsonCodec amqpJsonCodec, ReaderNumberCache readerNumberCache) {
+            return new ReaderEventRabbitmqReceiver(readerService, amqpJsonCodec, readerNumberCache);
         }
 
         @Bean(name = "bookReceiver")
-        public BookEventRabbitmqReceiver bookReceiver(BookDetailsRepository bookDetailsRepository) {
-            return new BookEventRabbitmqReceiver(bookDetailsRepository);
+        public BookEventRabbitmqReceiver bookReceiver(BookDetailsSyncService bookDetailsSyncService, AmqpJsonCodec amqpJsonCodec) {
+            return new BookEventRabbitmqReceiver(bookDetailsSyncService, amqpJsonCodec);
         }
     }
 }
\ No newline at end of file
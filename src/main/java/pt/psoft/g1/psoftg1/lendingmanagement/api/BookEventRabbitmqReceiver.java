@@ -1,95 +1,73 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.api;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import pt.psoft.g1.psoftg1.lendingmanagement.model.BookDetails;
-import pt.psoft.g1.psoftg1.lendingmanagement.repositories.BookDetailsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.BookDetailsSyncService;
+import pt.psoft.g1.psoftg1.shared.api.AmqpJsonCodec;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * Consumes the book events in batches (see {@code bookBatchContainerFactory}), so that a catalog
+ * republish of the books service is applied with one query and one transaction per batch instead of
+ * per message.
+ */
 @Component
 @RequiredArgsConstructor
 public class BookEventRabbitmqReceiver {
 
-    private final BookDetailsRepository bookDetailsRepository;
+    private final BookDetailsSyncService bookDetailsSyncService;
+    private final AmqpJsonCodec amqpJsonCodec;
 
-    @RabbitListener(queues = "#{autoDeleteQueue_Book_Created.name}")
-    @Transactional
-    public void receiveBookCreated(Message msg) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            String jsonReceived = new String(msg.getBody(), StandardCharsets.UTF_8);
-            BookViewAMQP bookViewAMQP = objectMapper.readValue(jsonReceived, BookViewAMQP.class);
+    @RabbitListener(queues = "#{queue_Book_Created.name}", containerFactory = "bookBatchContainerFactory")
+    public void receiveBookCreated(List<Message> messages) {
+        final List<BookViewAMQP> books = decode(messages);
+        System.out.println(" [x] Received " + books.size() + " Book Created by AMQP.");
+        applyIsolatingFailures(books, bookDetailsSyncService::createAll);
+    }
 
-            System.out.println(" [x] Received Book Created by AMQP: " + bookViewAMQP.getIsbn());
+    @RabbitListener(queues = "#{queue_Book_Updated.name}", containerFactory = "bookBatchContainerFactory")
+    public void receiveBookUpdated(List<Message> messages) {
+        final List<BookViewAMQP> books = decode(messages);
+        System.out.println(" [x] Received " + books.size() + " Book Updated by AMQP.");
+        applyIsolatingFailures(books, bookDetailsSyncService::upsertAll);
+    }
 
-            if (bookDetailsRepository.findByIsbn(bookViewAMQP.getIsbn()).isEmpty()) {
-                BookDetails book = new BookDetails(
-                        bookViewAMQP.getIsbn(),
-                        bookViewAMQP.getTitle(),
-                        bookViewAMQP.getGenre()
-                );
-                bookDetailsRepository.save(book);
-                System.out.println(" [x] New local BookDetails inserted from AMQP.");
-            } else {
-                System.out.println(" [x] Book already exists locally. No need to store it.");
+    /** Messages that can't be read are reported and dropped without affecting the rest of the batch. */
+    private List<BookViewAMQP> decode(List<Message> messages) {
+        final List<BookViewAMQP> books = new ArrayList<>(messages.size());
+        for (Message msg : messages) {
+            try {
+                books.add(amqpJsonCodec.decode(msg, BookViewAMQP.class));
+            } catch (Exception ex) {
+                System.out.println(" [x] Exception receiving book event from AMQP: '" + ex.getMessage() + "'");
             }
-        } catch (Exception ex) {
-            System.out.println(" [x] Exception receiving book event from AMQP: '" + ex.getMessage() + "'");
         }
+        return books;
     }
 
-    @RabbitListener(queues = "#{autoDeleteQueue_Book_Updated.name}")
-    @Transactional
-    public void receiveBookUpdated(Message msg) {
+    /**
+     * Applies the whole batch in one transaction; if that fails, falls back to one transaction per book so
+     * a single bad event only loses itself.
+     */
+    private void applyIsolatingFailures(List<BookViewAMQP> books, Consumer<List<BookViewAMQP>> action) {
+        if (books.isEmpty())
+            return;
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            String jsonReceived = new String(msg.getBody(), StandardCharsets.UTF_8);
-            BookViewAMQP bookViewAMQP = objectMapper.readValue(jsonReceived, BookViewAMQP.class);
-
-            System.out.println(" [x] Received Book Updated by AMQP: " + bookViewAMQP.getIsbn());
-
-            Optional<BookDetails> bookDetailsOpt = bookDetailsRepository.findByIsbn(bookViewAMQP.getIsbn());
-            
-            if (bookDetailsOpt.isPresent()) {
-                BookDetails book = bookDetailsOpt.get();
-                book.setTitle(bookViewAMQP.getTitle());
-                book.setGenre(bookViewAMQP.getGenre());
-                // We don't track version or description for lending purposes, just Title/ISBN usually
-                bookDetailsRepository.save(book);
-                System.out.println(" [x] Local BookDetails updated from AMQP.");
-            } else {
-                // Optional: If we receive an update for a book we don't have, we could create it
-                BookDetails book = new BookDetails(
-                        bookViewAMQP.getIsbn(),
-                        bookViewAMQP.getTitle(),
-                        bookViewAMQP.getGenre()
-                );
-                bookDetailsRepository.save(book);
-                System.out.println(" [x] Book did not exist, created from Update event.");
+            action.accept(books);
+        } catch (Exception batchEx) {
+            System.out.println(" [x] Book batch failed, retrying one by one: '" + batchEx.getMessage() + "'");
+            for (BookViewAMQP book : books) {
+                try {
+                    action.accept(List.of(book));
+                } catch (Exception ex) {
+                    System.out.println(" [x] Exception storing book " + book.getIsbn() + " from AMQP: '" + ex.getMessage() + "'");
+                }
             }
-        } catch (Exception ex) {
-            System.out.println(" [x] Exception receiving book event from AMQP: '" + ex.getMessage() + "'");
         }
     }
-
-    // Local DTO to handle the incoming JSON.
-    // We ignore fields we don't care about (like description, authors list, etc.)
-    @Data
-    @NoArgsConstructor
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class BookViewAMQP {
-        private String isbn;
-        private String title;
-        private String genre;
-        // private String description; // Ignored/Not needed for Lending logic
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Book as published by the books service. Only the fields needed for lending purposes are kept;
+ * the rest (description, authors, ...) is ignored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Schema(description = "A Book form AMQP communication")
+public class BookViewAMQP {
+    private String isbn;
+    private String title;
+    private String genre;
+}
@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "The outcome of one item of a batch request")
+public class LendingBatchItemView {
+
+    /** Position of the item in the request. */
+    private int index;
+
+    /** HTTP status the item would have had as a request of its own. */
+    private int status;
+
+    private LendingView lending;
+
+    private String error;
+}
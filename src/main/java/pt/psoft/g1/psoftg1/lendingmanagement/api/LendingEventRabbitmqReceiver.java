@@ -1,67 +1,59 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.api;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingInbox;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
-import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
-
-import java.nio.charset.StandardCharsets;
-
+import pt.psoft.g1.psoftg1.shared.api.AmqpJsonCodec;
+import pt.psoft.g1.psoftg1.shared.model.LendingEvents;
+
+import java.io.IOException;
+
+/**
+ * Applies lending events from other instances. Each event goes through the {@link LendingInbox} first,
+ * so redeliveries, replays and this instance's own events are skipped.
+ * <p>
+ * Failures are not caught: the transaction, inbox entry included, rolls back and the message is
+ * dead-lettered, to be inspected and replayed.
+ */
 @Component
 @RequiredArgsConstructor
 public class LendingEventRabbitmqReceiver {
 
     private final LendingService lendingService;
+    private final AmqpJsonCodec amqpJsonCodec;
+    private final LendingInbox lendingInbox;
 
-    @RabbitListener(queues = "#{autoDeleteQueue_Lending_Created.name}")
+    @RabbitListener(queues = "#{queue_Lending_Created.name}", containerFactory = "lendingContainerFactory")
     @Transactional
-    public void receiveLendingCreated(Message msg) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            String json = new String(msg.getBody(), StandardCharsets.UTF_8);
-            LendingViewAMQP view = mapper.readValue(json, LendingViewAMQP.class);
-
-            System.out.println(" [x] Received Lending Created: " + view.getLendingNumber());
+    public void receiveLendingCreated(Message msg) throws IOException {
+        LendingViewAMQP view = amqpJsonCodec.decode(msg, LendingViewAMQP.class);
 
-            CreateLendingRequest request = new CreateLendingRequest();
-            request.setIsbn(view.getIsbn());
-            request.setReaderNumber(view.getReaderNumber());
-            
-            try {
-                lendingService.create(request);
-            } catch (Exception e) {
-                System.out.println(" [!] Lending already exists or error: " + e.getMessage());
-            }
-        } catch (Exception ex) {
-            System.err.println(" [!] Exception receiving lending created: " + ex.getMessage());
+        if (!lendingInbox.accept(LendingInbox.messageId(LendingEvents.LENDING_CREATED, view))) {
+            System.out.println(" [x] Duplicate Lending Created skipped: " + view.getLendingNumber());
+            return;
         }
+        System.out.println(" [x] Received Lending Created: " + view.getLendingNumber());
+
+        lendingService.create(view);
     }
 
-    @RabbitListener(queues = "#{autoDeleteQueue_Lending_Updated.name}")
+    @RabbitListener(queues = "#{queue_Lending_Updated.name}", containerFactory = "lendingContainerFactory")
     @Transactional
-    public void receiveLendingUpdated(Message msg) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            String json = new String(msg.getBody(), StandardCharsets.UTF_8);
-            LendingViewAMQP view = mapper.readValue(json, LendingViewAMQP.class);
+    public void receiveLendingUpdated(Message msg) throws IOException {
+        LendingViewAMQP view = amqpJsonCodec.decode(msg, LendingViewAMQP.class);
 
-            System.out.println(" [x] Received Lending Updated: " + view.getLendingNumber());
+        if (!lendingInbox.accept(LendingInbox.messageId(LendingEvents.LENDING_UPDATED, view))) {
+            System.out.println(" [x] Duplicate Lending Updated skipped: " + view.getLendingNumber());
+            return;
+        }
+        System.out.println(" [x] Received Lending Updated: " + view.getLendingNumber());
 
-            if (view.getReturnedDate() != null) {
-                SetLendingReturnedRequest request = new SetLendingReturnedRequest();
-                request.setCommentary(view.getCommentary());
-                
-                // FIXED: Pass version from view (default to 0 or handled inside service if null)
-                long version = view.getVersion() != null ? view.getVersion() : 0L;
-                lendingService.setReturned(view.getLendingNumber(), request, version);
-            }
-        } catch (Exception ex) {
-            System.err.println(" [!] Exception receiving lending updated: " + ex.getMessage());
+        if (view.getReturnedDate() != null) {
+            lendingService.setReturned(view);
         }
     }
-}
\ No newline at end of file
+}
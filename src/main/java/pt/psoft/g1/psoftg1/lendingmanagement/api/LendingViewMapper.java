@@ -5,6 +5,7 @@ import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
 import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
 
 import java.util.HashMap;
@@ -27,8 +28,40 @@ public abstract class LendingViewMapper extends MapperInterface {
 
     public abstract List<LendingView> toLendingView(List<Lending> lendings);
 
+    @Mapping(target = "fineValueInCents", source = "fineCents")
+    @Mapping(target = "daysUntilReturn", expression = "java(summary.daysUntilReturn())")
+    @Mapping(target = "daysOverdue", expression = "java(summary.daysOverdue())")
+    @Mapping(target = "_links.self", source = "lendingNumber", qualifiedByName = "lendingLinkFromNumber")
+    @Mapping(target = "_links.book", source = "bookIsbn", qualifiedByName = "bookLinkFromIsbn")
+    @Mapping(target = "_links.reader", source = "readerNumber", qualifiedByName = "readerLinkFromNumber")
+    public abstract LendingView toLendingView(LendingSummary summary);
+
+    public abstract List<LendingView> summariesToLendingView(List<LendingSummary> summaries);
+
     public abstract LendingsAverageDurationView toLendingsAverageDurationView(Double lendingsAverageDuration);
 
+    @Named(value = "lendingLinkFromNumber")
+    protected Map<String, String> mapLendingLink(String lendingNumber) {
+        Map<String, String> lendingLink = new HashMap<>();
+        String lendingUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/lendings/")
+                .path(lendingNumber)
+                .toUriString();
+        lendingLink.put("href", lendingUri);
+        return lendingLink;
+    }
+
+    @Named(value = "readerLinkFromNumber")
+    protected Map<String, String> mapReaderLink(String readerNumber) {
+        Map<String, String> readerLink = new HashMap<>();
+        String readerUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/readers/")
+                .path(readerNumber)
+                .toUriString();
+        readerLink.put("href", readerUri);
+        return readerLink;
+    }
+
     @Named(value = "bookLinkFromIsbn")
     protected Map<String, String> mapBookLink(String isbn) {
         Map<String, String> bookLink = new HashMap<>();
@@ -0,0 +1,13 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Schema(description = "The fines accrued so far by a reader's overdue lendings that are still open")
+public class OutstandingFinesView {
+    private String readerNumber;
+    private long cents;
+}
@@ -5,6 +5,8 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.StaleObjectStateException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,19 +17,27 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.*;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
-import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderNumberCache;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 @Tag(name = "Lendings", description = "Endpoints for managing Lendings")
 @RestController
@@ -35,7 +45,10 @@ import java.util.Objects;
 @RequestMapping("/api/lendings")
 public class LendingController {
     private final LendingService lendingService;
-    private final ReaderService readerService;
+    private final FineAccrualService fineAccrualService;
+    private final LendingExportService lendingExportService;
+    private final LendingImportService lendingImportService;
+    private final ReaderNumberCache readerNumberCache;
     private final ConcurrencyService concurrencyService;
 
     private final LendingViewMapper lendingViewMapper;
@@ -58,6 +71,27 @@ public class LendingController {
                 .body(lendingViewMapper.toLendingView(lending));
     }
 
+    @Operation(summary = "Creates several Lendings at once; each item succeeds or fails on its own")
+    @PostMapping("/batch")
+    public ListResponse<LendingBatchItemView> createBatch(@Valid @RequestBody final CreateLendingBatchRequest resource) {
+        return new ListResponse<>(toBatchItemViews(lendingService.createAll(resource.getLendings()), HttpStatus.CREATED));
+    }
+
+    @Operation(summary = "Sets several Lendings as returned at once; each item succeeds or fails on its own")
+    @PatchMapping("/batch")
+    public ListResponse<LendingBatchItemView> setLendingsReturned(
+            final Authentication authentication,
+            @Valid @RequestBody final ReturnLendingBatchRequest resource) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            throw new AccessDeniedException("User is not logged in");
+        }
+        // a librarian may return anyone's lendings, a reader only their own
+        List<String> roles = jwt.getClaimAsStringList("roles");
+        String readerNumber = roles != null && roles.contains("LIBRARIAN") ? null : loggedReaderNumber(jwt);
+
+        return new ListResponse<>(toBatchItemViews(lendingService.setReturnedAll(resource.getLendings(), readerNumber), HttpStatus.OK));
+    }
+
     @Operation(summary = "Gets a specific Lending")
     @GetMapping(value = "/{year}/{seq}")
     public ResponseEntity<LendingView> findByLendingNumber(
@@ -80,19 +114,12 @@ public class LendingController {
 
         // Extract roles from JWT claims (assuming 'roles' claim is a list of strings)
         List<String> roles = jwt.getClaimAsStringList("roles");
-        String username = jwt.getClaimAsString("sub");
-        if(username.contains(",")) {
-            username = username.split(",")[1];
-        }
 
         // If NOT a Librarian, check if the reader owns the lending
         // Replaced constant Role.LIBRARIAN with literal "LIBRARIAN" or "ROLE_LIBRARIAN" as per your JWT structure
         if (roles == null || !roles.contains("LIBRARIAN")) {
-            final var loggedReaderDetails = readerService.findByUsername(username)
-                    .orElseThrow(() -> new NotFoundException(ReaderDetails.class, username));
-
             //if logged Reader matches the one associated with the lending, skip ahead
-            if (!Objects.equals(loggedReaderDetails.getReaderNumber(), lending.getReaderDetails().getReaderNumber())) {
+            if (!Objects.equals(loggedReaderNumber(jwt), lending.getReaderDetails().getReaderNumber())) {
                 throw new AccessDeniedException("Reader does not have permission to view this lending");
             }
         }
@@ -130,16 +157,8 @@ public class LendingController {
             throw new AccessDeniedException("User is not logged in");
         }
 
-        String username = jwt.getClaimAsString("sub");
-        if(username.contains(",")) {
-            username = username.split(",")[1];
-        }
-
-        final var loggedReaderDetails = readerService.findByUsername(username)
-                .orElseThrow(() -> new NotFoundException(ReaderDetails.class, username));
-
         //if logged Reader matches the one associated with the lending, skip ahead
-        if (!Objects.equals(loggedReaderDetails.getReaderNumber(), maybeLending.getReaderDetails().getReaderNumber())) {
+        if (!Objects.equals(loggedReaderNumber(jwt), maybeLending.getReaderDetails().getReaderNumber())) {
             throw new AccessDeniedException("Reader does not have permission to edit this lending");
         }
 
@@ -176,16 +195,8 @@ public class LendingController {
             throw new AccessDeniedException("User is not logged in");
         }
 
-        String username = jwt.getClaimAsString("sub");
-        if(username.contains(",")) {
-            username = username.split(",")[1];
-        }
-
-        final var loggedReaderDetails = readerService.findByUsername(username)
-                .orElseThrow(() -> new NotFoundException(ReaderDetails.class, username));
-
         //if logged Reader matches the one associated with the lending, skip ahead
-        if (!Objects.equals(loggedReaderDetails.getReaderNumber(), maybeLending.getReaderDetails().getReaderNumber())) {
+        if (!Objects.equals(loggedReaderNumber(jwt), maybeLending.getReaderDetails().getReaderNumber())) {
             throw new AccessDeniedException("Reader does not have permission to edit this lending");
         }
 
@@ -197,6 +208,23 @@ public class LendingController {
                 .body(lendingViewMapper.toLendingView(lending));
     }
 
+    @Operation(summary = "Gets the fines accrued by a reader's open overdue lendings, as of the last nightly accrual")
+    @GetMapping(value = "/readers/{year}/{seq}/outstandingFines")
+    public OutstandingFinesView getOutstandingFines(
+            final Authentication authentication,
+            @PathVariable("year") final Integer year,
+            @PathVariable("seq") final Integer seq) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            throw new AccessDeniedException("User is not logged in");
+        }
+        final String readerNumber = year + "/" + seq;
+        List<String> roles = jwt.getClaimAsStringList("roles");
+        if ((roles == null || !roles.contains("LIBRARIAN")) && !Objects.equals(loggedReaderNumber(jwt), readerNumber)) {
+            throw new AccessDeniedException("Reader does not have permission to view these fines");
+        }
+        return new OutstandingFinesView(readerNumber, fineAccrualService.getOutstandingFines(readerNumber));
+    }
+
     @Operation(summary = "Get average lendings duration")
     @GetMapping(value = "/avgDuration")
     public @ResponseBody ResponseEntity<LendingsAverageDurationView> getAvgDuration() {
@@ -207,16 +235,88 @@ public class LendingController {
     @Operation(summary = "Get list of overdue lendings")
     @GetMapping(value = "/overdue")
     public ListResponse<LendingView> getOverdueLendings(@Valid @RequestBody(required = false) Page page) {
-        final List<Lending> overdueLendings = lendingService.getOverdue(page);
+        final List<LendingSummary> overdueLendings = lendingService.getOverdue(page);
         if(overdueLendings.isEmpty())
             throw new NotFoundException("No lendings to show");
-        return new ListResponse<>(lendingViewMapper.toLendingView(overdueLendings));
+        return new ListResponse<>(lendingViewMapper.summariesToLendingView(overdueLendings),
+                nextCursor(overdueLendings, page, l -> l.limitDate().toString()));
+    }
+
+    @Operation(summary = "Exports every lending matching the search filters, streamed as NDJSON or CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLendings(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            final SearchLendingQuery query) {
+        final LendingExportFormat exportFormat = LendingExportFormat.from(format);
+        final LendingExportService.Filters filters = LendingExportService.Filters.of(query);
+        return export("lendings", exportFormat, out -> lendingExportService.exportLendings(filters, exportFormat, out));
+    }
+
+    @Operation(summary = "Exports every overdue lending, streamed as NDJSON or CSV")
+    @GetMapping("/overdue/export")
+    public ResponseEntity<StreamingResponseBody> exportOverdueLendings(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format) {
+        final LendingExportFormat exportFormat = LendingExportFormat.from(format);
+        return export("overdue-lendings", exportFormat, out -> lendingExportService.exportOverdue(exportFormat, out));
+    }
+
+    @Operation(summary = "Imports historical lendings from an NDJSON or CSV body, keeping their numbers and dates; no events are published")
+    @PostMapping("/import")
+    public LendingImportReport importLendings(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            final InputStream body) throws IOException {
+        return lendingImportService.importLendings(body, LendingExportFormat.from(format));
     }
 
     @PostMapping("/search")
     public ListResponse<LendingView> searchReaders(
             @RequestBody final SearchRequest<SearchLendingQuery> request) {
         final var readerList = lendingService.searchLendings(request.getPage(), request.getQuery());
-        return new ListResponse<>(lendingViewMapper.toLendingView(readerList));
+        return new ListResponse<>(lendingViewMapper.summariesToLendingView(readerList),
+                nextCursor(readerList, request.getPage(), LendingSummary::lendingNumber));
+    }
+
+    /** The body is written after the handler returns, row by row, as the lendings are read. */
+    private static ResponseEntity<StreamingResponseBody> export(String name, LendingExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    private List<LendingBatchItemView> toBatchItemViews(List<LendingBatchResult> results, HttpStatus success) {
+        return results.stream()
+                .map(result -> result.isOk()
+                        ? new LendingBatchItemView(result.index(), success.value(), lendingViewMapper.toLendingView(result.lending()), null)
+                        : new LendingBatchItemView(result.index(), statusOf(result.error()).value(), null, result.error().getMessage()))
+                .toList();
+    }
+
+    /** The status {@link pt.psoft.g1.psoftg1.exceptions.GlobalExceptionHandler} gives the exception. */
+    private static HttpStatus statusOf(RuntimeException error) {
+        if (error instanceof NotFoundException) return HttpStatus.NOT_FOUND;
+        if (error instanceof LendingForbiddenException || error instanceof AccessDeniedException) return HttpStatus.FORBIDDEN;
+        if (error instanceof ConflictException || error instanceof StaleObjectStateException) return HttpStatus.CONFLICT;
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    /** Reader number of the logged in reader, from the cache rather than loading the whole reader. */
+    private String loggedReaderNumber(Jwt jwt) {
+        String sub = jwt.getClaimAsString("sub");
+        final String username = sub.contains(",") ? sub.split(",")[1] : sub;
+        return readerNumberCache.findReaderNumber(username)
+                .orElseThrow(() -> new NotFoundException(ReaderDetails.class, username));
+    }
+
+    /**
+     * Cursor pointing after the last lending of a full page; {@code null} when the page wasn't full, as
+     * there is nothing after it. The sort key must match the ordering of the query that produced the page.
+     */
+    private static String nextCursor(List<LendingSummary> lendings, Page page, Function<LendingSummary, String> sortKey) {
+        final int limit = page == null ? new Page().getLimit() : page.getLimit();
+        if (lendings.size() < limit)
+            return null;
+        final LendingSummary last = lendings.get(lendings.size() - 1);
+        return new PageCursor(sortKey.apply(last), last.pk()).encode();
     }
 }
\ No newline at end of file
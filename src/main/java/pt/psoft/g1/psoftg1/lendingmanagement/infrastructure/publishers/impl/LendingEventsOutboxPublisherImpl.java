@@ -0,0 +1,137 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.publishers.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQPMapper;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingOutboxEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.publishers.LendingEventsPublisher;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingOutboxRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingInbox;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsDueSoonEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsOverdueEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedWithRecommendationRequest;
+import pt.psoft.g1.psoftg1.shared.api.AmqpJsonCodec;
+import pt.psoft.g1.psoftg1.shared.model.LendingEvents;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Publishes lending events through the outbox: the event is stored in the caller's transaction and sent
+ * to the broker later by {@link LendingOutboxRelay}. Nothing here waits on the broker.
+ * <p>
+ * Calls must join the transaction that changed the lending, otherwise an event could outlive a rollback.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class LendingEventsOutboxPublisherImpl implements LendingEventsPublisher {
+
+    private final LendingOutboxRepository outboxRepository;
+    private final LendingViewAMQPMapper lendingViewAMQPMapper;
+    private final AmqpJsonCodec amqpJsonCodec;
+    private final LendingInbox lendingInbox;
+
+    @Override
+    public void sendLendingCreated(Lending lending) {
+        sendEvent(lending, LendingEvents.LENDING_CREATED, null);
+    }
+
+    @Override
+    public void sendLendingUpdated(Lending updatedLending, Long version) {
+        sendEvent(updatedLending, LendingEvents.LENDING_UPDATED, version);
+    }
+
+    @Override
+    public void sendLendingWithCommentary(Lending updatedLending, long desiredVersion, SetLendingReturnedWithRecommendationRequest resource) {
+        sendEvent(updatedLending, LendingEvents.LENDING_UPDATED_WITH_RECOMMENDATION, desiredVersion);
+    }
+
+    @Override
+    public void sendLendingsCreated(List<Lending> lendings) {
+        sendEvents(lendings, null, LendingEvents.LENDING_CREATED);
+    }
+
+    @Override
+    public void sendLendingsUpdated(List<Lending> lendings, List<Long> versions) {
+        sendEvents(lendings, versions, LendingEvents.LENDING_UPDATED);
+    }
+
+    @Override
+    public boolean sendLendingsDueSoon(LocalDate day, List<String> lendingNumbers, int batchSize) {
+        return sendDay(LendingEvents.LENDINGS_DUE_SOON, day, lendingNumbers, batchSize, LendingsDueSoonEvent::new);
+    }
+
+    @Override
+    public boolean sendLendingsOverdue(LocalDate day, List<String> lendingNumbers, int batchSize) {
+        return sendDay(LendingEvents.LENDINGS_OVERDUE, day, lendingNumbers, batchSize, LendingsOverdueEvent::new);
+    }
+
+    /**
+     * The day is claimed through the inbox, so of the nodes sharing the database only the first announces it;
+     * two claiming at once can't both commit.
+     */
+    private boolean sendDay(String routingKey, LocalDate day, List<String> lendingNumbers, int batchSize,
+                            BiFunction<LocalDate, List<String>, Object> event) {
+        if (!lendingInbox.accept(routingKey + ":" + day))
+            return false;
+        List<LendingOutboxEvent> events = new ArrayList<>();
+        for (int from = 0; from < lendingNumbers.size(); from += batchSize) {
+            Object batch = event.apply(day, List.copyOf(lendingNumbers.subList(from, Math.min(from + batchSize, lendingNumbers.size()))));
+            try {
+                events.add(new LendingOutboxEvent(routingKey, amqpJsonCodec.encode(batch)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize the " + routingKey + " of " + day, e);
+            }
+        }
+        outboxRepository.saveAll(events);
+        return true;
+    }
+
+    /** All the events go to the outbox, and to the inbox, in one batch each. */
+    private void sendEvents(List<Lending> lendings, List<Long> versions, String routingKey) {
+        List<LendingOutboxEvent> events = new ArrayList<>(lendings.size());
+        List<String> messageIds = new ArrayList<>(lendings.size());
+        for (int i = 0; i < lendings.size(); i++) {
+            Lending lending = lendings.get(i);
+            LendingViewAMQP view = toView(lending, versions == null ? null : versions.get(i));
+            events.add(new LendingOutboxEvent(routingKey, encode(lending, view)));
+            messageIds.add(LendingInbox.messageId(routingKey, view));
+        }
+        outboxRepository.saveAll(events);
+        lendingInbox.record(messageIds);
+    }
+
+    private void sendEvent(Lending lending, String routingKey, Long version) {
+        LendingViewAMQP view = toView(lending, version);
+        outboxRepository.save(new LendingOutboxEvent(routingKey, encode(lending, view)));
+        // the event comes back to this instance's queues too; it's already applied here
+        lendingInbox.accept(LendingInbox.messageId(routingKey, view));
+    }
+
+    private LendingViewAMQP toView(Lending lending, Long version) {
+        LendingViewAMQP view = lendingViewAMQPMapper.toLendingViewAMQP(lending);
+        if (version != null) {
+            view.setVersion(version);
+        }
+        // Manually map fields that might be missing in the mapper for flattened objects
+        view.setIsbn(lending.getBookIsbn());
+        view.setReaderNumber(lending.getReaderDetails().getReaderNumber());
+        return view;
+    }
+
+    private byte[] encode(Lending lending, LendingViewAMQP view) {
+        try {
+            return amqpJsonCodec.encode(view);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize lending " + lending.getLendingNumber(), e);
+        }
+    }
+}
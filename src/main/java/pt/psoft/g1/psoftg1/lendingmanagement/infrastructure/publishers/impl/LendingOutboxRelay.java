@@ -0,0 +1,103 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.publishers.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingOutboxEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingOutboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the lending outbox to the broker.
+ * <p>
+ * Each run sends up to {@code batchSize} events, oldest first, and waits for the broker to confirm all of
+ * them before deleting them from the outbox. If anything fails the whole batch stays and is sent again on
+ * the next run, so delivery is at-least-once: consumers must tolerate duplicates.
+ * <p>
+ * Exposes {@code lending.outbox.lag} (age of the oldest pending event) and {@code lending.outbox.pending}.
+ */
+@Component
+@Profile("!test")
+public class LendingOutboxRelay {
+
+    private final LendingOutboxRepository outboxRepository;
+    private final RabbitTemplate template;
+    private final DirectExchange direct;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+
+    public LendingOutboxRelay(LendingOutboxRepository outboxRepository,
+                              RabbitTemplate template,
+                              @Qualifier("directExchangeLendings") DirectExchange direct,
+                              MeterRegistry meterRegistry,
+                              @Value("${lending-outbox.batch-size:100}") int batchSize,
+                              @Value("${lending-outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.template = template;
+        this.direct = direct;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+
+        Gauge.builder("lending.outbox.lag", lagMillis, v -> v.get() / 1000.0)
+                .description("Age of the oldest lending event not yet confirmed by the broker")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("lending.outbox.pending", pending, AtomicLong::get)
+                .description("Lending events waiting in the outbox")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${lending-outbox.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            int sent;
+            do {
+                sent = relayBatch();
+            } while (sent == batchSize);
+            pending.set(outboxRepository.count());
+        } catch (Exception e) {
+            System.err.println(" [!] Error relaying lending outbox: " + e.getMessage());
+        }
+    }
+
+    /** @return how many events were sent and confirmed */
+    int relayBatch() {
+        final List<LendingOutboxEvent> batch = outboxRepository.findPending(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Duration.between(batch.get(0).getCreatedAt(), Instant.now()).toMillis());
+
+        template.invoke(operations -> {
+            for (LendingOutboxEvent event : batch) {
+                MessageProperties properties = new MessageProperties();
+                properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+                properties.setContentEncoding("UTF-8");
+                properties.setMessageId("lending-outbox-" + event.getPk());
+                operations.send(direct.getName(), event.getRoutingKey(), new Message(event.getPayload(), properties));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+
+        outboxRepository.deleteByPkIn(batch.stream().map(LendingOutboxEvent::getPk).toList());
+        return batch.size();
+    }
+}
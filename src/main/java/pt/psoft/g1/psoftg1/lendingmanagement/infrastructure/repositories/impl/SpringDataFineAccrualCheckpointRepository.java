@@ -0,0 +1,8 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.repository.CrudRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualCheckpoint;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualCheckpointRepository;
+
+public interface SpringDataFineAccrualCheckpointRepository extends FineAccrualCheckpointRepository, CrudRepository<FineAccrualCheckpoint, String> {
+}
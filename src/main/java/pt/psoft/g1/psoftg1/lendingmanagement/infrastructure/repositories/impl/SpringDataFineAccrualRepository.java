@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineTotal;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRepository;
+
+import java.util.List;
+
+public interface SpringDataFineAccrualRepository extends FineAccrualRepository, CrudRepository<FineAccrual, Long> {
+    @Override
+    @Query("SELECT COALESCE(SUM(a.cents), 0) FROM FineAccrual a WHERE a.readerNumber = :readerNumber " +
+            "AND EXISTS (SELECT 1 FROM Lending l WHERE l.pk = a.lendingPk AND l.returnedDate IS NULL)")
+    long sumOutstandingByReaderNumber(@Param("readerNumber") String readerNumber);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineTotal(a.readerNumber, SUM(a.cents)) FROM FineAccrual a " +
+            "WHERE EXISTS (SELECT 1 FROM Lending l WHERE l.pk = a.lendingPk AND l.returnedDate IS NULL) GROUP BY a.readerNumber")
+    List<ReaderFineTotal> sumOutstandingByReader();
+
+    @Override
+    @Modifying
+    @Query("DELETE FROM FineAccrual a WHERE NOT EXISTS (SELECT 1 FROM Lending l WHERE l.pk = a.lendingPk AND l.returnedDate IS NULL)")
+    int deleteReturned();
+}
@@ -0,0 +1,48 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface SpringDataLendingDurationStatsRepository extends LendingDurationStatsRepository, CrudRepository<LendingDurationStats, String> {
+    @Override
+    @Modifying
+    @Query("UPDATE LendingDurationStats s SET s.totalDays = s.totalDays + :days, s.returnedCount = s.returnedCount + 1 WHERE s.statsKey = :statsKey")
+    int addReturned(@Param("statsKey") String statsKey, @Param("days") long days);
+
+    @Override
+    @Modifying
+    @Query("UPDATE LendingDurationStats s SET s.totalDays = s.totalDays + :totalDays, s.returnedCount = s.returnedCount + :count WHERE s.statsKey = :statsKey")
+    int addReturnedAll(@Param("statsKey") String statsKey, @Param("totalDays") long totalDays, @Param("count") long count);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM LendingDurationStats s WHERE s.statsKey = :statsKey")
+    Optional<LendingDurationStats> findForUpdate(@Param("statsKey") String statsKey);
+
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LendingDurationStats s SET " +
+            "s.totalDays = (SELECT COALESCE(SUM((l.returnedDate - l.startDate) by day), 0) FROM Lending l " +
+            "WHERE l.bookIsbn = s.statsKey AND l.returnedDate IS NOT NULL), " +
+            "s.returnedCount = (SELECT COUNT(l2) FROM Lending l2 WHERE l2.bookIsbn = s.statsKey AND l2.returnedDate IS NOT NULL) " +
+            "WHERE s.statsKey = :isbn")
+    int recount(@Param("isbn") String isbn);
+
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LendingDurationStats s SET " +
+            "s.totalDays = (SELECT COALESCE(SUM((l.returnedDate - l.startDate) by day), 0) FROM Lending l WHERE l.returnedDate IS NOT NULL), " +
+            "s.returnedCount = (SELECT COUNT(l2) FROM Lending l2 WHERE l2.returnedDate IS NOT NULL), " +
+            "s.rebuiltAt = :rebuiltAt " +
+            "WHERE s.statsKey = '" + LendingDurationStats.ALL + "'")
+    int recountAll(@Param("rebuiltAt") LocalDateTime rebuiltAt);
+}
@@ -0,0 +1,17 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ProcessedLendingEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingInboxRepository;
+
+import java.time.Instant;
+
+public interface SpringDataLendingInboxRepository extends LendingInboxRepository, CrudRepository<ProcessedLendingEvent, String> {
+    @Override
+    @Modifying
+    @Query("DELETE FROM ProcessedLendingEvent e WHERE e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,25 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingOutboxEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingOutboxRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SpringDataLendingOutboxRepository extends LendingOutboxRepository, CrudRepository<LendingOutboxEvent, Long> {
+    @Override
+    @Query("SELECT e FROM LendingOutboxEvent e ORDER BY e.pk")
+    List<LendingOutboxEvent> findPending(Pageable pageable);
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM LendingOutboxEvent e WHERE e.pk IN :pks")
+    int deleteByPkIn(@Param("pks") Collection<Long> pks);
+}
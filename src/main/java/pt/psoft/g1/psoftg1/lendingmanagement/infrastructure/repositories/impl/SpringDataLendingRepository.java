@@ -4,20 +4,28 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.util.StringUtils;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.OverdueLending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SpringDataLendingRepository extends LendingRepository, LendingRepoCustom, CrudRepository<Lending, Long> {
 
@@ -25,6 +33,14 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
     @Query("SELECT l FROM Lending l WHERE l.lendingNumber = :lendingNumber")
     Optional<Lending> findByLendingNumber(@Param("lendingNumber") String lendingNumber);
 
+    @Override
+    @Query("SELECT l FROM Lending l JOIN FETCH l.readerDetails WHERE l.lendingNumber IN :lendingNumbers")
+    List<Lending> findByLendingNumbers(@Param("lendingNumbers") Collection<String> lendingNumbers);
+
+    @Override
+    @Query("SELECT l.lendingNumber FROM Lending l WHERE l.lendingNumber IN :lendingNumbers")
+    List<String> findExistingLendingNumbers(@Param("lendingNumbers") Collection<String> lendingNumbers);
+
     @Override
     @Query("SELECT l FROM Lending l JOIN l.readerDetails r WHERE l.bookIsbn = :isbn AND r.readerNumber.readerNumber = :readerNumber")
     List<Lending> listByReaderNumberAndIsbn(@Param("readerNumber") String readerNumber, @Param("isbn") String isbn);
@@ -33,42 +49,63 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
     @Query("SELECT COUNT(l) FROM Lending l WHERE YEAR(l.startDate) = YEAR(CURRENT_DATE)")
     int getCountFromCurrentYear();
 
+    @Override
+    @Query("SELECT MAX(CAST(SUBSTRING(l.lendingNumber, 6) AS integer)) FROM Lending l WHERE l.lendingNumber LIKE :yearPrefix")
+    Integer getMaxSequenceFromYear(@Param("yearPrefix") String yearPrefix);
+
     @Override
     @Query("SELECT l FROM Lending l JOIN l.readerDetails r WHERE r.readerNumber.readerNumber = :readerNumber AND l.returnedDate IS NULL")
     List<Lending> listOutstandingByReaderNumber(@Param("readerNumber") String readerNumber);
 
     @Override
-    @Query(value = "SELECT AVG(DATEDIFF('DAY', l.start_date, l.returned_date)) FROM Lending l WHERE l.returned_date IS NOT NULL", nativeQuery = true)
-    Double getAverageDuration();
+    @Query("SELECT DISTINCT l.bookIsbn FROM Lending l WHERE l.returnedDate IS NOT NULL AND l.bookIsbn > :afterIsbn ORDER BY l.bookIsbn")
+    List<String> findReturnedIsbnsAfter(@Param("afterIsbn") String afterIsbn, Pageable pageable);
 
     @Override
-    @Query(value = "SELECT AVG(DATEDIFF('DAY', l.start_date, l.returned_date)) FROM Lending l WHERE l.book_isbn = :isbn AND l.returned_date IS NOT NULL", nativeQuery = true)
-    Double getAvgLendingDurationByIsbn(@Param("isbn") String isbn);
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.model.OverdueLending(l.pk, r.readerNumber.readerNumber, l.limitDate, l.fineValuePerDayInCents) " +
+            "FROM Lending l JOIN l.readerDetails r WHERE l.returnedDate IS NULL AND l.limitDate < :asOf AND l.pk > :afterPk ORDER BY l.pk")
+    List<OverdueLending> findOverdueAfter(@Param("asOf") LocalDate asOf, @Param("afterPk") long afterPk, Pageable pageable);
 
     @Override
     @Query("SELECT l FROM Lending l WHERE l.readerDetails = :readerDetails AND l.bookIsbn = :isbn AND (:returned IS NULL OR (:returned = true AND l.returnedDate IS NOT NULL) OR (:returned = false AND l.returnedDate IS NULL))")
     List<Lending> listByReaderDetailsAndIsbnRaw(@Param("readerDetails") ReaderDetails readerDetails, @Param("isbn") String isbn, @Param("returned") Boolean returned);
 
     @Override
-    @Query("SELECT l FROM Lending l WHERE l.readerDetails = :readerDetails AND l.returnedDate IS NULL AND l.limitDate < CURRENT_DATE")
-    List<Lending> listOverdue(@Param("readerDetails") ReaderDetails readerDetails);
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters(r.readerNumber.readerNumber, COUNT(l), MIN(l.limitDate)) " +
+            "FROM Lending l JOIN l.readerDetails r WHERE l.returnedDate IS NULL GROUP BY r.readerNumber.readerNumber")
+    List<ReaderLendingCounters> countOutstandingByReader();
 
     @Override
-    @Query("SELECT count(l) FROM Lending l WHERE l.readerDetails = :readerDetails AND l.returnedDate IS NULL")
-    long countOutstanding(@Param("readerDetails") ReaderDetails readerDetails);
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary(l.pk, l.lendingNumber, l.bookIsbn, l.bookTitle, " +
+            "l.startDate, l.limitDate, l.returnedDate, f.cents, r.readerNumber.readerNumber) " +
+            "FROM Lending l JOIN l.readerDetails r LEFT JOIN l.fine f WHERE l.returnedDate IS NULL")
+    List<LendingSummary> listOutstandingSummaries();
 
     @Override
-    @Query("SELECT l FROM Lending l WHERE l.returnedDate IS NULL")
-    List<Lending> listOutstanding();
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary(l.pk, l.lendingNumber, l.bookIsbn, l.bookTitle, " +
+            "l.startDate, l.limitDate, l.returnedDate, f.cents, r.readerNumber.readerNumber) " +
+            "FROM Lending l JOIN l.readerDetails r LEFT JOIN l.fine f WHERE l.startDate >= :since AND l.returnedDate IS NULL")
+    List<LendingSummary> listOutstandingSummariesStartedSince(@Param("since") LocalDate since);
+
+    @Override
+    @Query("SELECT l.pk FROM Lending l WHERE l.returnedDate >= :since")
+    List<Long> findReturnedPksSince(@Param("since") LocalDate since);
+
+    @Override
+    @Query("SELECT l.pk FROM Lending l WHERE l.pk IN :pks AND l.returnedDate IS NULL")
+    List<Long> findOutstandingPks(@Param("pks") Collection<Long> pks);
 }
 
 interface LendingRepoCustom {
-    List<Lending> getOverdue(Page page);
-    List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    List<LendingSummary> getOverdue(Page page);
+    List<LendingSummary> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
     
+    Stream<LendingSummary> streamLendings(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate, int fetchSize);
+    Stream<LendingSummary> streamOverdue(int fetchSize);
+
     // Explicit raw methods
-    List<Lending> getOverdueRaw(Pageable pageable);
-    List<Lending> searchLendingsRaw(Pageable pageable, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    List<LendingSummary> getOverdueRaw(Pageable pageable);
+    List<LendingSummary> searchLendingsRaw(Pageable pageable, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 }
 
 @RequiredArgsConstructor
@@ -77,52 +114,103 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
     private final EntityManager em;
 
     @Override
-    public List<Lending> getOverdue(Page page) {
+    public List<LendingSummary> getOverdue(Page page) {
         if (page == null) page = new Page(1, 10);
+        if (page.getCursor() != null)
+            return getOverdueAfter(PageCursor.decode(page.getCursor()), page.getLimit());
         return getOverdueRaw(org.springframework.data.domain.PageRequest.of(page.getNumber() - 1, page.getLimit()));
     }
 
     @Override
-    public List<Lending> getOverdueRaw(Pageable pageable) {
+    public List<LendingSummary> getOverdueRaw(Pageable pageable) {
+        TypedQuery<LendingSummary> q = overdueQuery(null);
+        q.setFirstResult((int) pageable.getOffset());
+        q.setMaxResults(pageable.getPageSize());
+
+        return q.getResultList();
+    }
+
+    /** Keyset variant: the cursor holds the {@code limitDate} and pk of the last lending of the previous page. */
+    private List<LendingSummary> getOverdueAfter(PageCursor cursor, int limit) {
+        TypedQuery<LendingSummary> q = overdueQuery(cursor);
+        q.setMaxResults(limit);
+
+        return q.getResultList();
+    }
+
+    private TypedQuery<LendingSummary> overdueQuery(PageCursor after) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
+        CriteriaQuery<LendingSummary> cq = cb.createQuery(LendingSummary.class);
         Root<Lending> root = cq.from(Lending.class);
-        cq.select(root);
+        cq.select(summary(cb, root, root.join("readerDetails")));
 
         List<Predicate> where = new ArrayList<>();
         where.add(cb.isNull(root.get("returnedDate")));
         where.add(cb.lessThan(root.get("limitDate"), LocalDate.now()));
+        if (after != null)
+            where.add(seek(cb, root.get("limitDate"), after.dateSortKey(), root.get("pk"), after.pk()));
 
         cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(root.get("limitDate")));
-
-        TypedQuery<Lending> q = em.createQuery(cq);
-        q.setFirstResult((int) pageable.getOffset());
-        q.setMaxResults(pageable.getPageSize());
+        // pk breaks ties between lendings due on the same day, so pages never overlap nor skip
+        cq.orderBy(cb.asc(root.get("limitDate")), cb.asc(root.get("pk")));
 
-        return q.getResultList();
+        return em.createQuery(cq);
     }
 
     @Override
-    public List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
+    public List<LendingSummary> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
          if (page == null) page = new Page(1, 10);
+         if (page.getCursor() != null) {
+             TypedQuery<LendingSummary> q = searchQuery(PageCursor.decode(page.getCursor()), readerNumber, isbn, returned, startDate, endDate);
+             q.setMaxResults(page.getLimit());
+             return q.getResultList();
+         }
          return searchLendingsRaw(org.springframework.data.domain.PageRequest.of(page.getNumber() - 1, page.getLimit()), readerNumber, isbn, returned, startDate, endDate);
     }
 
     @Override
-    public List<Lending> searchLendingsRaw(Pageable pageable, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
+    public Stream<LendingSummary> streamLendings(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate, int fetchSize) {
+        return stream(searchQuery(null, readerNumber, isbn, returned, startDate, endDate), fetchSize);
+    }
+
+    @Override
+    public Stream<LendingSummary> streamOverdue(int fetchSize) {
+        return stream(overdueQuery(null), fetchSize);
+    }
+
+    /**
+     * Forward-only: rows are fetched from the database cursor {@code fetchSize} at a time as the stream is
+     * consumed, and, being constructor results, never enter the persistence context.
+     */
+    private static Stream<LendingSummary> stream(TypedQuery<LendingSummary> q, int fetchSize) {
+        q.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        q.setHint(HibernateHints.HINT_READ_ONLY, true);
+        return q.getResultStream();
+    }
+
+    @Override
+    public List<LendingSummary> searchLendingsRaw(Pageable pageable, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
+        TypedQuery<LendingSummary> q = searchQuery(null, readerNumber, isbn, returned, startDate, endDate);
+        q.setFirstResult((int) pageable.getOffset());
+        q.setMaxResults(pageable.getPageSize());
+
+        return q.getResultList();
+    }
+
+    /** @param after when not null, only lendings sorted after this cursor ({@code lendingNumber}, pk) */
+    private TypedQuery<LendingSummary> searchQuery(PageCursor after, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
+        CriteriaQuery<LendingSummary> cq = cb.createQuery(LendingSummary.class);
         Root<Lending> lendingRoot = cq.from(Lending.class);
         Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
-        cq.select(lendingRoot);
+        cq.select(summary(cb, lendingRoot, readerDetailsJoin));
 
         List<Predicate> where = new ArrayList<>();
 
         if (StringUtils.hasText(readerNumber))
-            where.add(cb.like(readerDetailsJoin.get("readerNumber").get("readerNumber"), readerNumber));
+            where.add(matches(cb, readerDetailsJoin.get("readerNumber").get("readerNumber"), readerNumber));
         if (StringUtils.hasText(isbn))
-            where.add(cb.like(lendingRoot.get("bookIsbn"), isbn));
+            where.add(matches(cb, lendingRoot.get("bookIsbn"), isbn));
         if (returned != null) {
             if (returned) where.add(cb.isNotNull(lendingRoot.get("returnedDate")));
             else where.add(cb.isNull(lendingRoot.get("returnedDate")));
@@ -131,14 +219,49 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
             where.add(cb.greaterThanOrEqualTo(lendingRoot.get("startDate"), startDate));
         if (endDate != null)
             where.add(cb.lessThanOrEqualTo(lendingRoot.get("startDate"), endDate));
+        if (after != null)
+            where.add(seek(cb, lendingRoot.get("lendingNumber"), after.sortKey(), lendingRoot.get("pk"), after.pk()));
 
         cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")), cb.asc(lendingRoot.get("pk")));
 
-        TypedQuery<Lending> q = em.createQuery(cq);
-        q.setFirstResult((int) pageable.getOffset());
-        q.setMaxResults(pageable.getPageSize());
+        return em.createQuery(cq);
+    }
 
-        return q.getResultList();
+    /**
+     * Selects only the columns a {@link LendingSummary} needs, with the fine left-joined, so a page is one
+     * statement instead of one per lending for its reader, the reader's photo and interests, and its fine.
+     */
+    private static CompoundSelection<LendingSummary> summary(CriteriaBuilder cb, Root<Lending> lending, Join<Lending, ReaderDetails> reader) {
+        Join<Lending, Fine> fine = lending.join("fine", JoinType.LEFT);
+        return cb.construct(LendingSummary.class,
+                lending.get("pk"),
+                lending.get("lendingNumber"),
+                lending.get("bookIsbn"),
+                lending.get("bookTitle"),
+                lending.get("startDate"),
+                lending.get("limitDate"),
+                lending.get("returnedDate"),
+                fine.get("cents"),
+                reader.get("readerNumber").get("readerNumber"));
+    }
+
+    /**
+     * Exact match unless the value has a wildcard ({@code %} or {@code _}); then the value is used as the
+     * {@code LIKE} pattern it always was. Only a sole trailing {@code %} ({@code 'prefix%'}) can still use
+     * a b-tree index (on PostgreSQL, see {@link Lending} for the collation caveat); any other pattern keeps
+     * its meaning and may scan.
+     */
+    private static Predicate matches(CriteriaBuilder cb, Path<String> path, String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('_') < 0)
+            return cb.equal(path, value);
+        return cb.like(path, value);
+    }
+
+    /** {@code (sortKey, pk) > (lastSortKey, lastPk)}, written out so every database can use the index. */
+    private static <K extends Comparable<? super K>> Predicate seek(CriteriaBuilder cb, Path<K> sortKey, K lastSortKey, Path<Long> pk, long lastPk) {
+        return cb.or(
+                cb.greaterThan(sortKey, lastSortKey),
+                cb.and(cb.equal(sortKey, lastSortKey), cb.greaterThan(pk, lastPk)));
     }
 }
\ No newline at end of file
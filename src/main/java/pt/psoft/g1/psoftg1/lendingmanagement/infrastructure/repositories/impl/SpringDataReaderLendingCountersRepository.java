@@ -0,0 +1,56 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderLendingCountersRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface SpringDataReaderLendingCountersRepository extends ReaderLendingCountersRepository, CrudRepository<ReaderLendingCounters, String> {
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ReaderLendingCounters c SET c.outstandingCount = c.outstandingCount + :count, " +
+            "c.earliestLimitDate = CASE WHEN c.earliestLimitDate IS NULL OR c.earliestLimitDate > :limitDate THEN :limitDate ELSE c.earliestLimitDate END " +
+            "WHERE c.readerNumber = :readerNumber AND c.outstandingCount + :count <= :max")
+    int addOutstanding(@Param("readerNumber") String readerNumber, @Param("count") int count,
+                       @Param("limitDate") LocalDate limitDate, @Param("max") int max);
+
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ReaderLendingCounters c SET c.outstandingCount = c.outstandingCount - :count, " +
+            "c.earliestLimitDate = (SELECT MIN(l.limitDate) FROM Lending l JOIN l.readerDetails r " +
+            "WHERE r.readerNumber.readerNumber = c.readerNumber AND l.returnedDate IS NULL), " +
+            "c.accruedFineCents = (SELECT COALESCE(SUM(a.cents), 0) FROM FineAccrual a WHERE a.readerNumber = c.readerNumber " +
+            "AND EXISTS (SELECT 1 FROM Lending l2 WHERE l2.pk = a.lendingPk AND l2.returnedDate IS NULL)) " +
+            "WHERE c.readerNumber = :readerNumber")
+    int removeOutstanding(@Param("readerNumber") String readerNumber, @Param("count") int count);
+
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ReaderLendingCounters c SET " +
+            "c.accruedFineCents = (SELECT COALESCE(SUM(a.cents), 0) FROM FineAccrual a WHERE a.readerNumber = c.readerNumber " +
+            "AND EXISTS (SELECT 1 FROM Lending l WHERE l.pk = a.lendingPk AND l.returnedDate IS NULL)) " +
+            "WHERE c.readerNumber IN :readerNumbers")
+    int refreshAccruedFines(@Param("readerNumbers") Collection<String> readerNumbers);
+
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ReaderLendingCounters c SET c.outstandingCount = c.outstandingCount WHERE c.readerNumber = :readerNumber")
+    int lock(@Param("readerNumber") String readerNumber);
+
+    @Override
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ReaderLendingCounters c SET " +
+            "c.outstandingCount = (SELECT COUNT(l) FROM Lending l JOIN l.readerDetails r " +
+            "WHERE r.readerNumber.readerNumber = c.readerNumber AND l.returnedDate IS NULL), " +
+            "c.earliestLimitDate = (SELECT MIN(l2.limitDate) FROM Lending l2 JOIN l2.readerDetails r2 " +
+            "WHERE r2.readerNumber.readerNumber = c.readerNumber AND l2.returnedDate IS NULL), " +
+            "c.accruedFineCents = (SELECT COALESCE(SUM(a.cents), 0) FROM FineAccrual a WHERE a.readerNumber = c.readerNumber " +
+            "AND EXISTS (SELECT 1 FROM Lending l3 WHERE l3.pk = a.lendingPk AND l3.returnedDate IS NULL)) " +
+            "WHERE c.readerNumber = :readerNumber")
+    int recount(@Param("readerNumber") String readerNumber);
+}
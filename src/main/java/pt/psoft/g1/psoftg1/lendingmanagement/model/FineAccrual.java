@@ -0,0 +1,44 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.model.EntityWithAssignedId;
+
+import java.time.LocalDate;
+
+/**
+ * The fine an open, overdue {@link Lending} has accrued so far, as of the last accrual run. Becomes stale
+ * once the lending is returned (its {@link Fine} takes over) and is removed by the next run.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "LENDING_FINE_ACCRUAL", indexes = @Index(name = "idx_fine_accrual_reader", columnList = "readerNumber"))
+public class FineAccrual extends EntityWithAssignedId<Long> {
+
+    @Id
+    private Long lendingPk;
+
+    @Column(nullable = false, length = 32)
+    private String readerNumber;
+
+    private int cents;
+
+    private LocalDate accruedUntil;
+
+    public FineAccrual(Long lendingPk, String readerNumber) {
+        this.lendingPk = lendingPk;
+        this.readerNumber = readerNumber;
+    }
+
+    public void accrue(int cents, LocalDate asOf) {
+        this.cents = cents;
+        this.accruedUntil = asOf;
+    }
+
+    @Override
+    public Long getId() {
+        return lendingPk;
+    }
+}
@@ -0,0 +1,49 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Progress of the fine accrual run of {@link #getRunDate()}: every overdue lending up to {@link #getLastPk()}
+ * is accrued. Committed with each chunk, so an interrupted run resumes after the last chunk it finished.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "FINE_ACCRUAL_CHECKPOINT")
+public class FineAccrualCheckpoint {
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Version
+    private Long version;
+
+    private LocalDate runDate;
+
+    private long lastPk;
+
+    private boolean completed;
+
+    public FineAccrualCheckpoint(String name) {
+        this.name = name;
+    }
+
+    public void start(LocalDate runDate) {
+        this.runDate = runDate;
+        this.lastPk = Long.MIN_VALUE;
+        this.completed = false;
+    }
+
+    public void advance(long lastPk) {
+        this.lastPk = lastPk;
+    }
+
+    public void complete() {
+        this.completed = true;
+    }
+}
@@ -12,12 +12,25 @@ import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 
+/**
+ * The indexes serve the lending searches and the overdue list. They are plain b-trees, which PostgreSQL
+ * only uses for {@code LIKE 'prefix%'} under the C collation; with any other, the ISBN prefix search
+ * needs {@code CREATE INDEX idx_lending_isbn_pattern ON lending (book_isbn varchar_pattern_ops)}, and the
+ * reader number one the same on {@code reader_details (reader_number)}. The schema is generated by
+ * Hibernate, which cannot declare operator classes, so these have to be created by hand.
+ */
 @Entity
-@Table(name = "Lending")
+@Table(name = "Lending", indexes = {
+        @Index(name = "idx_lending_reader_returned", columnList = "reader_details_pk, returned_date"),
+        @Index(name = "idx_lending_isbn_returned", columnList = "book_isbn, returned_date"),
+        @Index(name = "idx_lending_returned_limit", columnList = "returned_date, limit_date"),
+        @Index(name = "idx_lending_start_date", columnList = "start_date")
+})
 public class Lending extends EntityWithPhoto {
 
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
+    @Getter
     private Long pk;
 
     @Column(nullable = false, unique = true)
@@ -25,20 +38,21 @@ public class Lending extends EntityWithPhoto {
     private String lendingNumber;
 
     @NotNull
-    @Column(nullable = false)
+    @Column(name = "start_date", nullable = false)
     @Getter
     private LocalDate startDate;
 
-    @Column(nullable = false)
+    @Column(name = "limit_date", nullable = false)
     @Getter
     private LocalDate limitDate;
 
+    @Column(name = "returned_date")
     @Getter
     private LocalDate returnedDate;
 
     // FIX: Replaced Book Entity with direct DB columns
     // We store the ISBN and Title to maintain a reference to the book in the Books Service
-    @Column(nullable = false)
+    @Column(name = "book_isbn", nullable = false)
     @Getter
     private String bookIsbn;
 
@@ -47,6 +61,7 @@ public class Lending extends EntityWithPhoto {
     private String bookTitle;
 
     @ManyToOne(optional = false, fetch = FetchType.EAGER)
+    @JoinColumn(name = "reader_details_pk")
     @Getter
     private ReaderDetails readerDetails;
 
@@ -111,6 +126,10 @@ public class Lending extends EntityWithPhoto {
     }
     
     public int getDaysDelayed() {
+        return daysDelayed(limitDate, returnedDate);
+    }
+
+    static int daysDelayed(LocalDate limitDate, LocalDate returnedDate) {
         if (returnedDate != null) {
             return (int) Math.max(0, ChronoUnit.DAYS.between(limitDate, returnedDate));
         } else {
@@ -0,0 +1,61 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.model.EntityWithAssignedId;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Running sum and count of the durations, in days, of returned lendings; one row for all lendings
+ * ({@link #ALL}) and one per ISBN, so the average duration is read without scanning Lending.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "LENDING_DURATION_STATS")
+public class LendingDurationStats extends EntityWithAssignedId<String> {
+
+    /** Key of the row aggregating every returned lending; never a valid ISBN. */
+    public static final String ALL = "*";
+
+    @Id
+    @Column(length = 32)
+    private String statsKey;
+
+    private long totalDays;
+
+    private long returnedCount;
+
+    /**
+     * When the stats were last recomputed from the lendings; only set on the {@link #ALL} row. A row created
+     * by an incremental update (e.g. a replicated return on a fresh database) stays {@code null} until the
+     * first rebuild.
+     */
+    private LocalDateTime rebuiltAt;
+
+    public LendingDurationStats(String statsKey) {
+        this.statsKey = statsKey;
+    }
+
+    public void add(long days) {
+        totalDays += days;
+        returnedCount++;
+    }
+
+    public void markRebuilt(LocalDateTime when) {
+        this.rebuiltAt = when;
+    }
+
+    public Optional<Double> getAverage() {
+        if (returnedCount == 0) return Optional.empty();
+        return Optional.of((double) totalDays / returnedCount);
+    }
+
+    @Override
+    public String getId() {
+        return statsKey;
+    }
+}
@@ -0,0 +1,39 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A lending event waiting to be relayed to the message broker.
+ * <p>
+ * It is written in the same transaction as the {@link Lending} change it describes, so the event exists
+ * if and only if the change was committed. The row is deleted once the broker confirms the message.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "LENDING_OUTBOX")
+public class LendingOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long pk;
+
+    @Column(nullable = false, length = 64)
+    private String routingKey;
+
+    @Column(nullable = false, length = 4096)
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public LendingOutboxEvent(String routingKey, byte[] payload) {
+        this.routingKey = routingKey;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+}
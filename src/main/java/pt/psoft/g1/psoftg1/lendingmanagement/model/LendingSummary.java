@@ -0,0 +1,29 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import java.time.LocalDate;
+
+/**
+ * Read model of a {@link Lending} for the list endpoints, selected column by column in a single statement
+ * so neither the reader (with its photo and interests) nor the fine are loaded as entities.
+ *
+ * @param fineCents {@code null} when the lending has no fine
+ */
+public record LendingSummary(Long pk,
+                             String lendingNumber,
+                             String bookIsbn,
+                             String bookTitle,
+                             LocalDate startDate,
+                             LocalDate limitDate,
+                             LocalDate returnedDate,
+                             Integer fineCents,
+                             String readerNumber) {
+
+    public int daysOverdue() {
+        return Lending.daysDelayed(limitDate, returnedDate);
+    }
+
+    public int daysUntilReturn() {
+        // same as Lending.getDaysUntilReturn()
+        return 0;
+    }
+}
@@ -0,0 +1,12 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import java.time.LocalDate;
+
+/** The columns of an open, overdue {@link Lending} needed to accrue its fine. */
+public record OverdueLending(Long pk, String readerNumber, LocalDate limitDate, int fineValuePerDayInCents) {
+
+    /** The fine the lending would get if it were returned on {@code asOf}. */
+    public int accruedCents(LocalDate asOf) {
+        return Lending.daysDelayed(limitDate, asOf) * fineValuePerDayInCents;
+    }
+}
@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.model.EntityWithAssignedId;
+
+import java.time.Instant;
+
+/**
+ * Inbox entry of a lending event already applied to this instance's database, keyed by the event's
+ * message id. A redelivered or replayed event finds its row and is skipped.
+ * <p>
+ * Rows are kept for a bounded retention and then purged; a duplicate arriving later than that is applied again.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "LENDING_INBOX", indexes = @Index(name = "idx_lending_inbox_processed_at", columnList = "processedAt"))
+public class ProcessedLendingEvent extends EntityWithAssignedId<String> {
+
+    @Id
+    @Column(length = 128)
+    private String messageId;
+
+    @Column(nullable = false)
+    private Instant processedAt;
+
+    public ProcessedLendingEvent(String messageId) {
+        this.messageId = messageId;
+        this.processedAt = Instant.now();
+    }
+
+    @Override
+    public String getId() {
+        return messageId;
+    }
+}
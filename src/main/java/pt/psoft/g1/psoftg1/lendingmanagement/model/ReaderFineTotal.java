@@ -0,0 +1,5 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+/** Sum of the {@link FineAccrual}s of a reader's open lendings. */
+public record ReaderFineTotal(String readerNumber, long cents) {
+}
@@ -0,0 +1,68 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.model.EntityWithAssignedId;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * What the lending rules need to know about a reader's open lendings, kept up to date as they are created
+ * and returned, so checking whether the reader may borrow is a primary-key read.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "READER_LENDING_COUNTERS")
+public class ReaderLendingCounters extends EntityWithAssignedId<String> {
+
+    @Id
+    @Column(length = 32)
+    private String readerNumber;
+
+    private int outstandingCount;
+
+    /** Limit date of the reader's open lending due first; null when there is none. */
+    private LocalDate earliestLimitDate;
+
+    /** Fines accrued by the open lendings, as of the last fine accrual. */
+    private long accruedFineCents;
+
+    public ReaderLendingCounters(String readerNumber) {
+        this.readerNumber = readerNumber;
+    }
+
+    public ReaderLendingCounters(String readerNumber, long outstandingCount, LocalDate earliestLimitDate) {
+        this.readerNumber = readerNumber;
+        this.outstandingCount = Math.toIntExact(outstandingCount);
+        this.earliestLimitDate = earliestLimitDate;
+    }
+
+    public void setAccruedFineCents(long accruedFineCents) {
+        this.accruedFineCents = accruedFineCents;
+    }
+
+    /** Whether an open lending is past its limit date on {@code date}. */
+    public boolean hasOverdue(LocalDate date) {
+        return earliestLimitDate != null && date.isAfter(earliestLimitDate);
+    }
+
+    public boolean sameCountsAs(ReaderLendingCounters other) {
+        return outstandingCount == other.outstandingCount
+                && Objects.equals(earliestLimitDate, other.earliestLimitDate)
+                && accruedFineCents == other.accruedFineCents;
+    }
+
+    @Override
+    public String toString() {
+        return readerNumber + "[outstanding=" + outstandingCount + ", earliestLimitDate=" + earliestLimitDate
+                + ", accruedFineCents=" + accruedFineCents + "]";
+    }
+
+    @Override
+    public String getId() {
+        return readerNumber;
+    }
+}
@@ -3,9 +3,25 @@ package pt.psoft.g1.psoftg1.lendingmanagement.publishers;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedWithRecommendationRequest;
 
+import java.time.LocalDate;
+import java.util.List;
+
 public interface LendingEventsPublisher {
     void sendLendingCreated(Lending lending);
+    void sendLendingsCreated(List<Lending> lendings);
     void sendLendingUpdated(Lending lending, Long currentVersion);
+    /** @param versions the version each lending was updated from, by position */
+    void sendLendingsUpdated(List<Lending> lendings, List<Long> versions);
 
     void sendLendingWithCommentary(Lending updatedLending, long desiredVersion, SetLendingReturnedWithRecommendationRequest resource);
+
+    /**
+     * Announces the lendings that became due soon on {@code day}, in events of at most {@code batchSize}.
+     * Once per database: every node sharing it fires the same timers.
+     * @return false when another node announced them already
+     */
+    boolean sendLendingsDueSoon(LocalDate day, List<String> lendingNumbers, int batchSize);
+
+    /** Same as {@link #sendLendingsDueSoon}, for the lendings that became overdue on {@code day}. */
+    boolean sendLendingsOverdue(LocalDate day, List<String> lendingNumbers, int batchSize);
 }
@@ -3,8 +3,11 @@ package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 import org.springframework.data.repository.CrudRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.BookDetails;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BookDetailsRepository extends CrudRepository<BookDetails, Long> {
     Optional<BookDetails> findByIsbn(String isbn);
+    List<BookDetails> findByIsbnIn(Collection<String> isbns);
 }
\ No newline at end of file
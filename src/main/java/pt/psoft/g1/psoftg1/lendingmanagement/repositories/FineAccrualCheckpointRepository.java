@@ -0,0 +1,11 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualCheckpoint;
+
+import java.util.Optional;
+
+public interface FineAccrualCheckpointRepository {
+    Optional<FineAccrualCheckpoint> findById(String name);
+
+    FineAccrualCheckpoint save(FineAccrualCheckpoint checkpoint);
+}
@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineTotal;
+
+import java.util.List;
+
+public interface FineAccrualRepository {
+    Iterable<FineAccrual> findAllById(Iterable<Long> lendingPks);
+
+    <S extends FineAccrual> Iterable<S> saveAll(Iterable<S> accruals);
+
+    /** Sum of the fines accrued by the reader's lendings that are still open; read through the reader index. */
+    long sumOutstandingByReaderNumber(String readerNumber);
+
+    /** {@link #sumOutstandingByReaderNumber} of every reader that has any. */
+    List<ReaderFineTotal> sumOutstandingByReader();
+
+    /** Removes the accruals of lendings returned since they were accrued. */
+    int deleteReturned();
+}
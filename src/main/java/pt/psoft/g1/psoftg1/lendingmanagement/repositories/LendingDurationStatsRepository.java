@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface LendingDurationStatsRepository {
+    Optional<LendingDurationStats> findById(String statsKey);
+
+    /**
+     * Adds one returned lending of {@code days} to the row, in a single update so concurrent returns never
+     * lose each other's increment.
+     * @return 0 when the row doesn't exist yet
+     */
+    int addReturned(String statsKey, long days);
+
+    /** Like {@link #addReturned(String, long)}, for {@code count} lendings lasting {@code totalDays} together. */
+    int addReturnedAll(String statsKey, long totalDays, long count);
+
+    LendingDurationStats save(LendingDurationStats stats);
+
+    /** The row, locked until the end of the transaction. */
+    Optional<LendingDurationStats> findForUpdate(String statsKey);
+
+    /**
+     * Recomputes the row of an ISBN from its returned lendings, in one statement.
+     * @return 0 when the row doesn't exist
+     */
+    int recount(String isbn);
+
+    /**
+     * Recomputes the {@link LendingDurationStats#ALL} row from every returned lending, in one statement, and
+     * marks the stats as rebuilt at {@code rebuiltAt}.
+     * @return 0 when the row doesn't exist
+     */
+    int recountAll(LocalDateTime rebuiltAt);
+}
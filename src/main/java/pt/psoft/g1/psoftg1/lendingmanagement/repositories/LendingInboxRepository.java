@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ProcessedLendingEvent;
+
+import java.time.Instant;
+
+public interface LendingInboxRepository {
+    boolean existsById(String messageId);
+
+    ProcessedLendingEvent save(ProcessedLendingEvent event);
+
+    <S extends ProcessedLendingEvent> Iterable<S> saveAll(Iterable<S> events);
+
+    int deleteProcessedBefore(Instant cutoff);
+}
@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import org.springframework.data.domain.Pageable;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingOutboxEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface LendingOutboxRepository {
+    LendingOutboxEvent save(LendingOutboxEvent event);
+
+    <S extends LendingOutboxEvent> Iterable<S> saveAll(Iterable<S> events);
+
+    /** Oldest events first, so they are relayed in the order they were written. */
+    List<LendingOutboxEvent> findPending(Pageable pageable);
+
+    int deleteByPkIn(Collection<Long> pks);
+
+    long count();
+}
@@ -1,26 +1,66 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 
+import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.OverdueLending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface LendingRepository {
     Optional<Lending> findByLendingNumber(String lendingNumber);
+    List<Lending> findByLendingNumbers(Collection<String> lendingNumbers);
+    /** Those of the given lending numbers already taken, without loading the lendings. */
+    List<String> findExistingLendingNumbers(Collection<String> lendingNumbers);
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn);
     int getCountFromCurrentYear();
+    Integer getMaxSequenceFromYear(String yearPrefix);
     List<Lending> listOutstandingByReaderNumber(String readerNumber);
-    Double getAverageDuration();
-    Double getAvgLendingDurationByIsbn(String isbn);
 
+    /** The distinct ISBNs of returned lendings greater than {@code afterIsbn}, in order; one chunk of a full scan. */
+    List<String> findReturnedIsbnsAfter(String afterIsbn, Pageable pageable);
 
-    List<Lending> getOverdue(Page page);
-    List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    /** Open lendings past their limit date on {@code asOf}, with a pk greater than {@code afterPk}, in pk order. */
+    List<OverdueLending> findOverdueAfter(LocalDate asOf, long afterPk, Pageable pageable);
+
+    /** The counters of every reader with open lendings, computed from the lendings; accrued fines left at 0. */
+    List<ReaderLendingCounters> countOutstandingByReader();
+
+    /** Every open lending, as read by the list endpoints. */
+    List<LendingSummary> listOutstandingSummaries();
+
+    /** The open lendings started on or after {@code since}, as read by {@link #listOutstandingSummaries()}. */
+    List<LendingSummary> listOutstandingSummariesStartedSince(LocalDate since);
+
+    /** The pks of the lendings returned on or after {@code since}. */
+    List<Long> findReturnedPksSince(LocalDate since);
+
+    /** Those of {@code pks} that are lendings still open. */
+    List<Long> findOutstandingPks(Collection<Long> pks);
+
+
+    List<LendingSummary> getOverdue(Page page);
+    List<LendingSummary> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Every lending matching the filters, in the order of {@link #searchLendings}, read from a database
+     * cursor {@code fetchSize} rows at a time. Must be consumed, and closed, inside a transaction.
+     */
+    Stream<LendingSummary> streamLendings(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate, int fetchSize);
+
+    /** Every overdue lending, in the order of {@link #getOverdue}; see {@link #streamLendings}. */
+    Stream<LendingSummary> streamOverdue(int fetchSize);
 
     Lending save(Lending lending);
 
+    <S extends Lending> Iterable<S> saveAll(Iterable<S> lendings);
+
     void delete(Lending lending);
 
 }
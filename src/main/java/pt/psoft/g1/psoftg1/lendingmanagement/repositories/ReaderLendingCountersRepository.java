@@ -0,0 +1,46 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface ReaderLendingCountersRepository {
+    Optional<ReaderLendingCounters> findById(String readerNumber);
+
+    Iterable<ReaderLendingCounters> findAllById(Iterable<String> readerNumbers);
+
+    Iterable<ReaderLendingCounters> findAll();
+
+    ReaderLendingCounters save(ReaderLendingCounters counters);
+
+    /**
+     * Adds {@code count} open lendings, the first of them due on {@code limitDate}, unless that would take
+     * the reader past {@code max}. Check and increment are one statement, so concurrent creations can't
+     * both take the last slot.
+     * @return 0 when the row doesn't exist or the reader would go past {@code max}
+     */
+    int addOutstanding(String readerNumber, int count, LocalDate limitDate, int max);
+
+    /**
+     * Removes {@code count} returned lendings and recomputes the earliest limit date and the accrued fines
+     * from the reader's remaining open lendings, which are few.
+     */
+    int removeOutstanding(String readerNumber, int count);
+
+    /** Recomputes the accrued fines of the readers from their {@link pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual}s. */
+    int refreshAccruedFines(Collection<String> readerNumbers);
+
+    /**
+     * Locks the reader's row until the end of the transaction, without loading it.
+     * @return 0 when the row doesn't exist
+     */
+    int lock(String readerNumber);
+
+    /**
+     * Recomputes every counter of the reader from their open lendings and accrued fines, in one statement.
+     * @return 0 when the row doesn't exist
+     */
+    int recount(String readerNumber);
+}
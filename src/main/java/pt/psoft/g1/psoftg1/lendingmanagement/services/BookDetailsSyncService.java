@@ -0,0 +1,65 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.BookViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.BookDetails;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.BookDetailsRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the local copy of the books ({@link BookDetails}) in sync with the events of the books service.
+ * <p>
+ * Each call handles a whole batch of events in one transaction: the referenced books are loaded with a
+ * single query, the events are applied in memory in arrival order and the changes are flushed together
+ * (batched by Hibernate, see {@code hibernate.jdbc.batch_size}).
+ */
+@Service
+@RequiredArgsConstructor
+public class BookDetailsSyncService {
+    private final BookDetailsRepository bookDetailsRepository;
+
+    /** Stores the books that don't exist locally yet; existing ones are left untouched. */
+    @Transactional
+    public void createAll(List<BookViewAMQP> books) {
+        apply(books, false);
+    }
+
+    /** Updates the title and genre of the books, creating the ones that don't exist locally. */
+    @Transactional
+    public void upsertAll(List<BookViewAMQP> books) {
+        apply(books, true);
+    }
+
+    private void apply(List<BookViewAMQP> books, boolean overwrite) {
+        final Set<String> isbns = new HashSet<>();
+        for (BookViewAMQP view : books)
+            isbns.add(view.getIsbn());
+
+        final Map<String, BookDetails> byIsbn = new HashMap<>();
+        for (BookDetails book : bookDetailsRepository.findByIsbnIn(isbns))
+            byIsbn.put(book.getIsbn(), book);
+
+        final List<BookDetails> created = new ArrayList<>();
+        for (BookViewAMQP view : books) {
+            BookDetails book = byIsbn.get(view.getIsbn());
+            if (book == null) {
+                book = new BookDetails(view.getIsbn(), view.getTitle(), view.getGenre());
+                byIsbn.put(book.getIsbn(), book);
+                created.add(book);
+            } else if (overwrite) {
+                // managed entity (or one created earlier in this batch): flushed on commit
+                book.setTitle(view.getTitle());
+                book.setGenre(view.getGenre());
+            }
+        }
+        bookDetailsRepository.saveAll(created);
+    }
+}
@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Runs the fine accrual nightly on {@code fine-accrual.cron}, and on startup finishes a run of today that
+ * was interrupted.
+ */
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class FineAccrualJob {
+    private final FineAccrualService accrualService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        if (accrualService.isUnfinished(LocalDate.now())) {
+            System.out.println(" [x] Resuming fine accrual");
+            accrue();
+        }
+    }
+
+    @Scheduled(cron = "${fine-accrual.cron:0 30 2 * * *}")
+    public void accrue() {
+        final LocalDate asOf = LocalDate.now();
+        if (!accrualService.begin(asOf))
+            return;
+        System.out.println(" [x] Accruing overdue fines as of " + asOf);
+        int chunks = 1;
+        while (accrualService.accrueChunk())
+            chunks++;
+        System.out.println(" [x] Fine accrual done in " + chunks + " chunks");
+    }
+}
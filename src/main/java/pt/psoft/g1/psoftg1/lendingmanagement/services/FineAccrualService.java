@@ -0,0 +1,108 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualCheckpoint;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.OverdueLending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualCheckpointRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Accrues the fines of open, overdue lendings, so the outstanding fines of a reader are read from a few
+ * {@link FineAccrual} rows instead of being recomputed from every lending.
+ * <p>
+ * A run walks the overdue lendings in pk order, one chunk per transaction, and commits a
+ * {@link FineAccrualCheckpoint} with each chunk. Accrued values are absolute, not increments, so running
+ * a chunk twice is harmless.
+ */
+@Service
+@RequiredArgsConstructor
+public class FineAccrualService {
+    static final String CHECKPOINT = "FINE_ACCRUAL";
+
+    private final LendingRepository lendingRepository;
+    private final FineAccrualRepository accrualRepository;
+    private final FineAccrualCheckpointRepository checkpointRepository;
+    private final ReaderLendingCountersService countersService;
+
+    @Value("${fine-accrual.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * Starts the run of {@code asOf}, unless it was already started, in which case it continues where it
+     * stopped.
+     * @return false when the run of {@code asOf} already completed
+     */
+    @Transactional
+    public boolean begin(LocalDate asOf) {
+        final FineAccrualCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .orElseGet(() -> new FineAccrualCheckpoint(CHECKPOINT));
+        if (asOf.equals(checkpoint.getRunDate()))
+            return !checkpoint.isCompleted();
+
+        accrualRepository.deleteReturned();
+        checkpoint.start(asOf);
+        checkpointRepository.save(checkpoint);
+        return true;
+    }
+
+    /** Whether the run of {@code asOf} was started and didn't complete, e.g. because the node stopped. */
+    public boolean isUnfinished(LocalDate asOf) {
+        return checkpointRepository.findById(CHECKPOINT)
+                .map(checkpoint -> asOf.equals(checkpoint.getRunDate()) && !checkpoint.isCompleted())
+                .orElse(false);
+    }
+
+    /**
+     * Accrues the next chunk of the current run and moves the checkpoint past it.
+     * @return false when the run is complete
+     */
+    @Transactional
+    public boolean accrueChunk() {
+        final FineAccrualCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .orElseThrow(() -> new IllegalStateException("No fine accrual run was started"));
+        if (checkpoint.isCompleted())
+            return false;
+
+        final LocalDate asOf = checkpoint.getRunDate();
+        final List<OverdueLending> chunk = lendingRepository.findOverdueAfter(asOf, checkpoint.getLastPk(),
+                PageRequest.of(0, chunkSize));
+
+        final Map<Long, FineAccrual> accruals = new HashMap<>();
+        accrualRepository.findAllById(chunk.stream().map(OverdueLending::pk).toList())
+                .forEach(accrual -> accruals.put(accrual.getLendingPk(), accrual));
+        final List<FineAccrual> changed = new ArrayList<>(chunk.size());
+        for (OverdueLending lending : chunk) {
+            final FineAccrual accrual = accruals.computeIfAbsent(lending.pk(),
+                    pk -> new FineAccrual(pk, lending.readerNumber()));
+            accrual.accrue(lending.accruedCents(asOf), asOf);
+            changed.add(accrual);
+        }
+        accrualRepository.saveAll(changed);
+        countersService.refreshAccruedFines(chunk.stream().map(OverdueLending::readerNumber).collect(Collectors.toSet()));
+
+        if (!chunk.isEmpty())
+            checkpoint.advance(chunk.get(chunk.size() - 1).pk());
+        if (chunk.size() < chunkSize)
+            checkpoint.complete();
+        checkpointRepository.save(checkpoint);
+        return !checkpoint.isCompleted();
+    }
+
+    /** Fines, in cents, accrued as of the last run by the reader's lendings that are still open. */
+    public long getOutstandingFines(String readerNumber) {
+        return accrualRepository.sumOutstandingByReaderNumber(readerNumber);
+    }
+}
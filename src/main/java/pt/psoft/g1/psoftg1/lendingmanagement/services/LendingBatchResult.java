@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * Outcome of one item of a batch request: the lending it produced, or why it was refused. A refused item
+ * doesn't affect the others.
+ * @param index position of the item in the request
+ */
+public record LendingBatchResult(int index, Lending lending, RuntimeException error) {
+
+    public static LendingBatchResult ok(int index, Lending lending) {
+        return new LendingBatchResult(index, lending, null);
+    }
+
+    public static LendingBatchResult failed(int index, RuntimeException error) {
+        return new LendingBatchResult(index, null, error);
+    }
+
+    public boolean isOk() {
+        return error == null;
+    }
+}
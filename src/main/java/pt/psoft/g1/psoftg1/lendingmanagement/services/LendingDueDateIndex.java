@@ -0,0 +1,368 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.publishers.LendingEventsPublisher;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.HierarchicalTimingWheel;
+import pt.psoft.g1.psoftg1.shared.services.HierarchicalTimingWheel.Timer;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The open lendings in memory, by due date: the ones not yet due on a {@link HierarchicalTimingWheel} of
+ * days, the overdue ones in {@code (limitDate, pk)} order.
+ * <p>
+ * Each lending has two timers, for when it is due soon and for when it becomes overdue, so a day passing
+ * only touches the lendings due that day. {@link #announce} publishes them as {@link LendingsDueSoonEvent}s
+ * and {@link LendingsOverdueEvent}s, in batches, through the outbox.
+ * <p>
+ * {@link #load()} reads every open lending once, on startup; until then {@link #getOverdue} returns nothing
+ * and callers query the database. From then on the index only changes incrementally: lendings created and
+ * returned through this node are applied after their transaction commits, and {@link #catchUp()} reads
+ * those other nodes sharing the database started or returned since the day before its previous run. They
+ * are found by date, not by pk, because each node takes its pks from its own block of the sequence. When
+ * a lending's timer fires it is checked against the database once more, which drops a return the
+ * catch-up missed, such as one replayed with a date older than its window.
+ */
+@Service
+public class LendingDueDateIndex {
+    /** Most lending numbers in one event, so that it fits an outbox row. */
+    public static final int MAX_EVENT_BATCH = 200;
+    private static final int CHECK_CHUNK = 1000;
+    private static final Comparator<LendingSummary> BY_DUE_DATE =
+            Comparator.comparing(LendingSummary::limitDate).thenComparing(LendingSummary::pk);
+
+    private final LendingRepository lendingRepository;
+    private final LendingEventsPublisher eventsPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int dueSoonDays;
+    private final int eventBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state;
+    // changes committed while a load or catch-up reads the database, replayed onto what it read
+    private List<Consumer<State>> pending;
+    // the day the last load or catch-up read on; the next catch-up reads from the day before
+    private LocalDate lastRead;
+
+    public LendingDueDateIndex(LendingRepository lendingRepository,
+                               LendingEventsPublisher eventsPublisher,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${lending-due-dates.due-soon-days:2}") int dueSoonDays,
+                               @Value("${lending-due-dates.event-batch-size:200}") int eventBatchSize) {
+        if (eventBatchSize < 1 || eventBatchSize > MAX_EVENT_BATCH)
+            throw new IllegalArgumentException("Event batch size must be between 1 and " + MAX_EVENT_BATCH);
+        this.lendingRepository = lendingRepository;
+        this.eventsPublisher = eventsPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.dueSoonDays = dueSoonDays;
+        this.eventBatchSize = eventBatchSize;
+    }
+
+    /** Reads every open lending, unless the index is loaded already. Changes committed while it runs are kept. */
+    public void load() {
+        final LocalDate today = LocalDate.now();
+        if (!beginRead(true))
+            return;
+        final List<LendingSummary> open = readOrAbort(lendingRepository::listOutstandingSummaries);
+
+        final State loaded = new State(today, dueSoonDays);
+        lock.lock();
+        try {
+            open.forEach(loaded::add);
+            endRead(loaded, today);
+            state = loaded;
+        } finally {
+            lock.unlock();
+        }
+        System.out.println(" [x] Indexed the due dates of " + open.size() + " open lendings");
+    }
+
+    /** Applies the lendings started or returned since the day before the previous read; loads the index if it isn't. */
+    public void catchUp() {
+        if (state == null) {
+            load();
+            return;
+        }
+        final LocalDate today = LocalDate.now();
+        if (!beginRead(false))
+            return;
+        final LocalDate since = lastRead.minusDays(1);
+        final List<LendingSummary> started = readOrAbort(() -> lendingRepository.listOutstandingSummariesStartedSince(since));
+        final List<Long> returned = readOrAbort(() -> lendingRepository.findReturnedPksSince(since));
+
+        lock.lock();
+        try {
+            started.forEach(state::add);
+            returned.forEach(state::remove);
+            endRead(state, today);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void lent(Collection<Lending> lendings) {
+        final List<LendingSummary> summaries = lendings.stream().map(LendingDueDateIndex::summary).toList();
+        afterCommit(index -> summaries.forEach(index::add));
+    }
+
+    public void returned(Collection<Lending> lendings) {
+        final List<Long> pks = lendings.stream().map(Lending::getPk).toList();
+        afterCommit(index -> pks.forEach(index::remove));
+    }
+
+    /**
+     * Moves the index to {@code today} and publishes the lendings whose timers fired, grouped by the day
+     * they fired on, once they are confirmed still open. A day that fails to publish is tried again on
+     * the next call.
+     */
+    public void announce(LocalDate today) {
+        final State current = state;
+        if (current == null)
+            return;
+        final List<Deadline> fired;
+        lock.lock();
+        try {
+            current.advance(today);
+            fired = current.takeFired();
+        } finally {
+            lock.unlock();
+        }
+        if (fired.isEmpty())
+            return;
+
+        final Set<Long> returned = returnedOf(fired);
+        if (!returned.isEmpty()) {
+            lock.lock();
+            try {
+                returned.forEach(current::remove);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        final Map<Deadline.Day, List<Deadline>> byDay = fired.stream()
+                .filter(deadline -> !returned.contains(deadline.lending().pk()))
+                .collect(Collectors.groupingBy(Deadline::day, TreeMap::new, Collectors.toList()));
+        byDay.forEach((day, deadlines) -> {
+            final List<String> lendingNumbers = deadlines.stream().map(d -> d.lending().lendingNumber()).toList();
+            try {
+                final Boolean published = transactionTemplate.execute(status -> day.overdue()
+                        ? eventsPublisher.sendLendingsOverdue(day.date(), lendingNumbers, eventBatchSize)
+                        : eventsPublisher.sendLendingsDueSoon(day.date(), lendingNumbers, eventBatchSize));
+                if (Boolean.TRUE.equals(published))
+                    System.out.println(" [x] Announced " + lendingNumbers.size() + " lendings "
+                            + (day.overdue() ? "overdue" : "due soon") + " on " + day.date());
+            } catch (RuntimeException e) {
+                System.err.println(" [!] Could not announce the lendings " + (day.overdue() ? "overdue" : "due soon")
+                        + " on " + day.date() + ", will retry: " + e.getMessage());
+                lock.lock();
+                try {
+                    current.fired.addAll(deadlines);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * A page of the lendings overdue today, in {@code (limitDate, pk)} order, the same as the database
+     * query; empty if the index isn't loaded yet.
+     */
+    public Optional<List<LendingSummary>> getOverdue(Page page) {
+        final State current = state;
+        if (current == null)
+            return Optional.empty();
+        lock.lock();
+        try {
+            current.advance(LocalDate.now());
+        } finally {
+            lock.unlock();
+        }
+
+        final NavigableSet<LendingSummary> from;
+        long skip = 0;
+        if (page.getCursor() != null) {
+            final PageCursor cursor = PageCursor.decode(page.getCursor());
+            from = current.overdue.tailSet(probe(cursor.dateSortKey(), cursor.pk()), false);
+        } else {
+            from = current.overdue;
+            skip = (long) (page.getNumber() - 1) * page.getLimit();
+        }
+        return Optional.of(from.stream().skip(skip).limit(page.getLimit()).toList());
+    }
+
+    /** The fired lendings the database no longer has open. */
+    private Set<Long> returnedOf(List<Deadline> fired) {
+        final List<Long> pks = fired.stream().map(deadline -> deadline.lending().pk()).distinct().toList();
+        final Set<Long> returned = new HashSet<>(pks);
+        for (int from = 0; from < pks.size(); from += CHECK_CHUNK)
+            lendingRepository.findOutstandingPks(pks.subList(from, Math.min(from + CHECK_CHUNK, pks.size())))
+                    .forEach(returned::remove);
+        return returned;
+    }
+
+    /** @return false when a read is running already, or the index is (not) loaded yet as {@code loading} expects */
+    private boolean beginRead(boolean loading) {
+        lock.lock();
+        try {
+            if (pending != null || (state == null) != loading)
+                return false;
+            pending = new ArrayList<>();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T readOrAbort(Supplier<T> query) {
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /** Under the lock. */
+    private void endRead(State read, LocalDate readOn) {
+        pending.forEach(change -> change.accept(read));
+        pending = null;
+        lastRead = readOn;
+    }
+
+    private void apply(Consumer<State> change) {
+        lock.lock();
+        try {
+            if (state != null)
+                change.accept(state);
+            if (pending != null)
+                pending.add(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void afterCommit(Consumer<State> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    private static LendingSummary summary(Lending lending) {
+        return new LendingSummary(lending.getPk(), lending.getLendingNumber(), lending.getBookIsbn(),
+                lending.getBookTitle(), lending.getStartDate(), lending.getLimitDate(), null, null,
+                lending.getReaderDetails().getReaderNumber());
+    }
+
+    private static LendingSummary probe(LocalDate limitDate, long pk) {
+        return new LendingSummary(pk, null, null, null, null, limitDate, null, null, null);
+    }
+
+    /** A timer of a lending: the day it is due soon, or the day it becomes overdue. */
+    private record Deadline(LendingSummary lending, boolean overdue, long epochDay) {
+        private Day day() {
+            return new Day(overdue, LocalDate.ofEpochDay(epochDay));
+        }
+
+        private record Day(boolean overdue, LocalDate date) implements Comparable<Day> {
+            @Override
+            public int compareTo(Day other) {
+                final int byDate = date.compareTo(other.date);
+                return byDate != 0 ? byDate : Boolean.compare(overdue, other.overdue);
+            }
+        }
+    }
+
+    /** The index; only changed under the lock, or before it is published. */
+    private static final class State {
+        private final int dueSoonDays;
+        private final HierarchicalTimingWheel<Deadline> wheel;
+        private final Map<Long, List<Timer<Deadline>>> timers = new HashMap<>();
+        private final Map<Long, LendingSummary> overdueByPk = new HashMap<>();
+        // read without the lock by getOverdue
+        private final NavigableSet<LendingSummary> overdue = new ConcurrentSkipListSet<>(BY_DUE_DATE);
+        // timers fired and not announced yet
+        private final List<Deadline> fired = new ArrayList<>();
+
+        private State(LocalDate today, int dueSoonDays) {
+            this.dueSoonDays = dueSoonDays;
+            this.wheel = new HierarchicalTimingWheel<>(today.toEpochDay());
+        }
+
+        private void add(LendingSummary lending) {
+            if (timers.containsKey(lending.pk()) || overdueByPk.containsKey(lending.pk()))
+                return;
+            final long overdueOn = lending.limitDate().toEpochDay() + 1;
+            if (overdueOn <= wheel.now()) {
+                markOverdue(lending);
+                return;
+            }
+            final List<Timer<Deadline>> lendingTimers = new ArrayList<>(2);
+            final long dueSoonOn = lending.limitDate().toEpochDay() - dueSoonDays;
+            if (dueSoonOn > wheel.now())
+                lendingTimers.add(wheel.schedule(dueSoonOn, new Deadline(lending, false, dueSoonOn)));
+            lendingTimers.add(wheel.schedule(overdueOn, new Deadline(lending, true, overdueOn)));
+            timers.put(lending.pk(), lendingTimers);
+        }
+
+        private void remove(Long pk) {
+            final List<Timer<Deadline>> lendingTimers = timers.remove(pk);
+            if (lendingTimers != null)
+                lendingTimers.forEach(wheel::cancel);
+            final LendingSummary lending = overdueByPk.remove(pk);
+            if (lending != null)
+                overdue.remove(lending);
+        }
+
+        private void advance(LocalDate today) {
+            if (wheel.now() >= today.toEpochDay())
+                return;
+            for (Deadline deadline : wheel.advanceTo(today.toEpochDay())) {
+                if (deadline.overdue()) {
+                    timers.remove(deadline.lending().pk());
+                    markOverdue(deadline.lending());
+                }
+                fired.add(deadline);
+            }
+        }
+
+        private List<Deadline> takeFired() {
+            final List<Deadline> taken = new ArrayList<>(fired);
+            fired.clear();
+            return taken;
+        }
+
+        private void markOverdue(LendingSummary lending) {
+            overdueByPk.put(lending.pk(), lending);
+            overdue.add(lending);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Loads the due-date index on startup; then, every {@code lending-due-dates.catch-up-interval-ms}, catches it
+ * up with the lendings other nodes started or returned and announces the lendings whose timers fired.
+ */
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class LendingDueDateJob {
+    private final LendingDueDateIndex dueDateIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        dueDateIndex.load();
+    }
+
+    @Scheduled(fixedDelayString = "${lending-due-dates.catch-up-interval-ms:60000}", initialDelayString = "${lending-due-dates.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        dueDateIndex.catchUp();
+        dueDateIndex.announce(LocalDate.now());
+    }
+}
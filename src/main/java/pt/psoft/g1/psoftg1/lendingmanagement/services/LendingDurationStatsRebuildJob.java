@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the lending duration stats the first time the service starts on a database that has none,
+ * and rebuilds them on {@code lending-duration-stats.rebuild-cron} when one is configured.
+ */
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class LendingDurationStatsRebuildJob {
+    private final LendingDurationStatsService statsService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!statsService.isBuilt()) {
+            System.out.println(" [x] Building lending duration stats");
+            statsService.rebuild();
+        }
+    }
+
+    @Scheduled(cron = "${lending-duration-stats.rebuild-cron:-}")
+    public void rebuild() {
+        System.out.println(" [x] Rebuilding lending duration stats");
+        statsService.rebuild();
+    }
+}
@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+
+/**
+ * Inserts an empty stats row in its own transaction, so that a concurrent insert of the same key fails
+ * here with a {@link org.springframework.dao.DataIntegrityViolationException} instead of rolling back the
+ * caller's transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class LendingDurationStatsRowCreator {
+    private final LendingDurationStatsRepository repo;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void create(String statsKey) {
+        repo.save(new LendingDurationStats(statsKey));
+    }
+}
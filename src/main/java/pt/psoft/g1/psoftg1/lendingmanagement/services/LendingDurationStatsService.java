@@ -0,0 +1,139 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the {@link LendingDurationStats} up to date as lendings are returned, and answers the average
+ * duration from them.
+ */
+@Service
+@RequiredArgsConstructor
+public class LendingDurationStatsService {
+    private final LendingDurationStatsRepository statsRepository;
+    private final LendingDurationStatsRowCreator rowCreator;
+    private final LendingRepository lendingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${lending-duration-stats.rebuild-chunk-size:1000}")
+    private int rebuildChunkSize;
+
+    /** Adds a lending that was just returned to the global and its ISBN's stats, in the caller's transaction. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReturned(Lending lending) {
+        final long days = ChronoUnit.DAYS.between(lending.getStartDate(), lending.getReturnedDate());
+        add(LendingDurationStats.ALL, days);
+        add(lending.getBookIsbn(), days);
+    }
+
+    /** Same as returning each lending on its own, with one update per distinct ISBN instead of two per lending. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReturned(Collection<Lending> lendings) {
+        final Map<String, LendingDurationStats> stats = new HashMap<>();
+        final LendingDurationStats all = new LendingDurationStats(LendingDurationStats.ALL);
+        for (Lending lending : lendings) {
+            final long days = ChronoUnit.DAYS.between(lending.getStartDate(), lending.getReturnedDate());
+            all.add(days);
+            stats.computeIfAbsent(lending.getBookIsbn(), LendingDurationStats::new).add(days);
+        }
+        stats.put(LendingDurationStats.ALL, all);
+        for (LendingDurationStats s : stats.values()) {
+            if (s.getReturnedCount() > 0)
+                addAll(s.getStatsKey(), s.getTotalDays(), s.getReturnedCount());
+        }
+    }
+
+    private void add(String statsKey, long days) {
+        if (statsRepository.addReturned(statsKey, days) > 0)
+            return;
+        createRow(statsKey);
+        statsRepository.addReturned(statsKey, days);
+    }
+
+    private void addAll(String statsKey, long totalDays, long count) {
+        if (statsRepository.addReturnedAll(statsKey, totalDays, count) > 0)
+            return;
+        createRow(statsKey);
+        statsRepository.addReturnedAll(statsKey, totalDays, count);
+    }
+
+    private void createRow(String statsKey) {
+        try {
+            rowCreator.create(statsKey);
+        } catch (DataIntegrityViolationException e) {
+            // another transaction created it first, which is just as good
+        }
+    }
+
+    public Optional<Double> getAverageDuration() {
+        return statsRepository.findById(LendingDurationStats.ALL).flatMap(LendingDurationStats::getAverage);
+    }
+
+    public Optional<Double> getAverageDuration(String isbn) {
+        return statsRepository.findById(isbn).flatMap(LendingDurationStats::getAverage);
+    }
+
+    /**
+     * Whether the stats were ever rebuilt from the lendings. The global row alone doesn't tell: a return
+     * recorded before the first rebuild creates it too.
+     */
+    public boolean isBuilt() {
+        return statsRepository.findById(LendingDurationStats.ALL)
+                .map(all -> all.getRebuiltAt() != null)
+                .orElse(false);
+    }
+
+    /**
+     * Recomputes every row from the returned lendings: the ISBNs one chunk at a time, then the global row,
+     * which marks the stats as built. Each row is recounted on its own (see {@link #recount}), so this is
+     * safe while lendings keep being returned.
+     */
+    public void rebuild() {
+        String lastIsbn = "";
+        List<String> chunk;
+        do {
+            chunk = lendingRepository.findReturnedIsbnsAfter(lastIsbn, PageRequest.of(0, rebuildChunkSize));
+            for (String isbn : chunk) {
+                recount(isbn);
+                lastIsbn = isbn;
+            }
+        } while (chunk.size() == rebuildChunkSize);
+        recount(LendingDurationStats.ALL);
+    }
+
+    /**
+     * Recomputes one row in a single update, in its own transaction, creating the row if missing. The row
+     * is locked first: a return that already added to it has committed by then and is counted by the
+     * update, and one that hasn't adds to it after the update commits.
+     */
+    private void recount(String statsKey) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (statsRepository.findForUpdate(statsKey).isEmpty()) {
+                createRow(statsKey);
+                statsRepository.findForUpdate(statsKey);
+            }
+            if (LendingDurationStats.ALL.equals(statsKey))
+                statsRepository.recountAll(LocalDateTime.now());
+            else
+                statsRepository.recount(statsKey);
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/** Format of lending exports, and of the files they can be imported back from. */
+public enum LendingExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    LendingExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static LendingExportFormat from(String format) {
+        try {
+            return valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Format must be ndjson or csv");
+        }
+    }
+}
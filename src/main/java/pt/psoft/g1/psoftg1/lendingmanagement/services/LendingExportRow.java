@@ -0,0 +1,47 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+
+import java.time.LocalDate;
+
+/** One exported lending, as an NDJSON object or a CSV line with the columns of {@link #CSV_HEADER}. */
+public record LendingExportRow(String lendingNumber,
+                               String readerNumber,
+                               String bookIsbn,
+                               String bookTitle,
+                               LocalDate startDate,
+                               LocalDate limitDate,
+                               LocalDate returnedDate,
+                               int daysOverdue,
+                               Integer fineCents) {
+
+    static final String CSV_HEADER = "lendingNumber,readerNumber,bookIsbn,bookTitle,startDate,limitDate,returnedDate,daysOverdue,fineCents";
+
+    public static LendingExportRow of(LendingSummary lending) {
+        return new LendingExportRow(lending.lendingNumber(), lending.readerNumber(), lending.bookIsbn(),
+                lending.bookTitle(), lending.startDate(), lending.limitDate(), lending.returnedDate(),
+                lending.daysOverdue(), lending.fineCents());
+    }
+
+    void appendCsv(StringBuilder line) {
+        appendCsv(line, lendingNumber).append(',');
+        appendCsv(line, readerNumber).append(',');
+        appendCsv(line, bookIsbn).append(',');
+        appendCsv(line, bookTitle).append(',');
+        appendCsv(line, startDate).append(',');
+        appendCsv(line, limitDate).append(',');
+        appendCsv(line, returnedDate).append(',');
+        line.append(daysOverdue).append(',');
+        appendCsv(line, fineCents);
+    }
+
+    /** RFC 4180: a field with a comma, quote or line break is quoted, with its quotes doubled; null is empty. */
+    private static StringBuilder appendCsv(StringBuilder line, Object value) {
+        if (value == null)
+            return line;
+        final String text = value.toString();
+        if (text.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r'))
+            return line.append(text);
+        return line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+}
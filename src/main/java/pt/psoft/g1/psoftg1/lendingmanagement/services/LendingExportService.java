@@ -0,0 +1,99 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes lendings to an output stream as they are read from a database cursor, so memory stays the same
+ * however many there are. Each export runs in one read-only transaction, which the cursor needs.
+ */
+@Service
+public class LendingExportService {
+    private final LendingRepository lendingRepository;
+    private final ObjectWriter rowWriter;
+    private final int fetchSize;
+
+    public LendingExportService(LendingRepository lendingRepository,
+                                ObjectMapper objectMapper,
+                                @Value("${lending-export.fetch-size:1000}") int fetchSize) {
+        this.lendingRepository = lendingRepository;
+        this.rowWriter = objectMapper.writerFor(LendingExportRow.class);
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportLendings(Filters filters, LendingExportFormat format, OutputStream out) throws IOException {
+        try (Stream<LendingSummary> lendings = lendingRepository.streamLendings(filters.readerNumber(),
+                filters.isbn(), filters.returned(), filters.startDate(), filters.endDate(), fetchSize)) {
+            return write(lendings, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportOverdue(LendingExportFormat format, OutputStream out) throws IOException {
+        try (Stream<LendingSummary> lendings = lendingRepository.streamOverdue(fetchSize)) {
+            return write(lendings, format, out);
+        }
+    }
+
+    /** @return the number of lendings written */
+    private long write(Stream<LendingSummary> lendings, LendingExportFormat format, OutputStream out) throws IOException {
+        final OutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+        final StringBuilder line = new StringBuilder(256);
+        if (format == LendingExportFormat.CSV)
+            buffered.write((LendingExportRow.CSV_HEADER + "\r\n").getBytes(StandardCharsets.UTF_8));
+
+        long count = 0;
+        final Iterator<LendingSummary> rows = lendings.iterator();
+        while (rows.hasNext()) {
+            final LendingExportRow row = LendingExportRow.of(rows.next());
+            if (format == LendingExportFormat.CSV) {
+                line.setLength(0);
+                row.appendCsv(line);
+                buffered.write(line.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+            } else {
+                buffered.write(rowWriter.writeValueAsBytes(row));
+                buffered.write('\n');
+            }
+            count++;
+        }
+        buffered.flush();
+        return count;
+    }
+
+    /** The search filters, checked before the response starts, while a bad date can still be a 400. */
+    public record Filters(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate) {
+
+        /** Dates as {@code YYYY-MM-DD}; a null query exports everything. */
+        public static Filters of(SearchLendingQuery query) {
+            if (query == null)
+                return new Filters(null, null, null, null, null);
+            return new Filters(query.getReaderNumber(), query.getIsbn(), query.getReturned(),
+                    parseDate(query.getStartDate()), parseDate(query.getEndDate()));
+        }
+
+        private static LocalDate parseDate(String date) {
+            if (date == null || date.isBlank())
+                return null;
+            try {
+                return LocalDate.parse(date);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import java.util.List;
+
+/**
+ * @param rejections the first {@code lending-import.max-reported-rejections} of them, in line order
+ *                   within each chunk
+ */
+public record LendingImportReport(long read,
+                                  long imported,
+                                  long rejected,
+                                  List<Rejection> rejections,
+                                  long elapsedMs,
+                                  double rowsPerSecond) {
+
+    /** @param line 1-based line of the file; in CSV the header is line 1 */
+    public record Rejection(long line, String reason) {
+    }
+}
@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import java.time.LocalDate;
+
+/**
+ * One historical lending to import, as an NDJSON object or a CSV line with a header naming these columns.
+ * Other columns, such as those of an export, are ignored.
+ *
+ * @param limitDate              defaults to {@code lendingDurationInDays} after the start
+ * @param fineValuePerDayInCents defaults to {@code fineValuePerDayInCents}
+ */
+public record LendingImportRow(String lendingNumber,
+                               String readerNumber,
+                               String bookIsbn,
+                               String bookTitle,
+                               LocalDate startDate,
+                               LocalDate limitDate,
+                               LocalDate returnedDate,
+                               Integer fineValuePerDayInCents,
+                               String commentary) {
+}
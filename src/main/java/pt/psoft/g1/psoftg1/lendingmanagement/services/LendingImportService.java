@@ -0,0 +1,355 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Imports historical lendings from a file, keeping their numbers and dates.
+ * <p>
+ * The file is read line by line and cut into chunks; chunks are parsed and validated in parallel on a
+ * {@link ForkJoinPool}, at most two per worker ahead of the writer, so memory depends on the chunk size
+ * and not on the file. The writer takes the chunks back in file order and, one transaction per chunk,
+ * resolves their readers and checks their numbers with one query each and inserts them in JDBC batches.
+ * <p>
+ * No lending events are published: every instance imports the history into its own database. The reader
+ * counters, the due-date index and the duration stats are updated as for any lending.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class LendingImportService {
+    private static final String DEFAULT_TITLE = "Title Unavailable";
+    // Lending.commentary column length
+    private static final int MAX_COMMENTARY_LENGTH = 1024;
+
+    private final LendingRepository lendingRepository;
+    private final ReaderRepository readerRepository;
+    private final ReaderLendingCountersService countersService;
+    private final LendingDueDateIndex dueDateIndex;
+    private final LendingDurationStatsService durationStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader rowReader;
+
+    @Value("${lendingDurationInDays}")
+    private int lendingDurationInDays;
+    @Value("${fineValuePerDayInCents}")
+    private int fineValuePerDayInCents;
+    @Value("${lending-import.chunk-size:2000}")
+    private int chunkSize = 2000;
+    // 0: one worker per processor
+    @Value("${lending-import.parallelism:0}")
+    private int parallelism;
+    @Value("${lending-import.max-reported-rejections:1000}")
+    private int maxReportedRejections = 1000;
+
+    public LendingImportService(LendingRepository lendingRepository,
+                                ReaderRepository readerRepository,
+                                ReaderLendingCountersService countersService,
+                                LendingDueDateIndex dueDateIndex,
+                                LendingDurationStatsService durationStatsService,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper) {
+        this.lendingRepository = lendingRepository;
+        this.readerRepository = readerRepository;
+        this.countersService = countersService;
+        this.dueDateIndex = dueDateIndex;
+        this.durationStatsService = durationStatsService;
+        this.transactionTemplate = transactionTemplate;
+        this.rowReader = objectMapper.readerFor(LendingImportRow.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public LendingImportReport importLendings(InputStream in, LendingExportFormat format) throws IOException {
+        final long startedAt = System.nanoTime();
+        final Report report = new Report(maxReportedRejections);
+        final int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        long lineNumber = 0;
+        Map<String, Integer> columns = null;
+        if (format == LendingExportFormat.CSV) {
+            final String header = reader.readLine();
+            if (header == null)
+                throw new IllegalArgumentException("The CSV file has no header");
+            lineNumber++;
+            columns = csvColumns(header);
+        }
+
+        try (ForkJoinPool pool = new ForkJoinPool(workers)) {
+            final Deque<ForkJoinTask<ParsedChunk>> parsing = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = lineNumber + 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    parsing.add(submit(pool, lines, firstLine, columns));
+                    if (parsing.size() >= 2 * workers)
+                        write(parsing.poll().join(), report);
+                    lines = new ArrayList<>(chunkSize);
+                    firstLine = lineNumber + 1;
+                }
+            }
+            if (!lines.isEmpty())
+                parsing.add(submit(pool, lines, firstLine, columns));
+            while (!parsing.isEmpty())
+                write(parsing.poll().join(), report);
+        }
+
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        final LendingImportReport result = report.toReport(elapsedNanos);
+        System.out.printf(" [x] Imported %d of %d lendings (%d rejected) in %d ms, %.0f rows/s%n",
+                result.imported(), result.read(), result.rejected(), result.elapsedMs(), result.rowsPerSecond());
+        return result;
+    }
+
+    private ForkJoinTask<ParsedChunk> submit(ForkJoinPool pool, List<String> lines, long firstLine, Map<String, Integer> columns) {
+        return pool.submit(() -> parse(lines, firstLine, columns));
+    }
+
+    /** Runs on the pool: touches nothing shared. */
+    private ParsedChunk parse(List<String> lines, long firstLine, Map<String, Integer> columns) {
+        final ParsedChunk chunk = new ParsedChunk(lines.size());
+        final int currentYear = LocalDate.now().getYear();
+        for (int i = 0; i < lines.size(); i++) {
+            final long line = firstLine + i;
+            if (lines.get(i).isBlank()) {
+                continue;
+            }
+            try {
+                final LendingImportRow row = columns != null ? csvRow(lines.get(i), columns) : rowReader.readValue(lines.get(i));
+                chunk.valid.add(validate(line, row, currentYear));
+            } catch (JsonProcessingException e) {
+                chunk.rejected.add(new LendingImportReport.Rejection(line, e.getOriginalMessage()));
+            } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+                chunk.rejected.add(new LendingImportReport.Rejection(line, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    private ValidRow validate(long line, LendingImportRow row, int currentYear) {
+        final String[] number = required(row.lendingNumber(), "lendingNumber").split("/");
+        final int year;
+        final int seq;
+        try {
+            if (number.length != 2)
+                throw new NumberFormatException();
+            year = Integer.parseInt(number[0]);
+            seq = Integer.parseInt(number[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("lendingNumber must be year/sequence");
+        }
+        if (seq < 1)
+            throw new IllegalArgumentException("lendingNumber must be year/sequence");
+        // numbers of the current year are handed out live and must not be taken from under the allocator
+        if (year >= currentYear)
+            throw new IllegalArgumentException("Only lendings of past years can be imported");
+
+        if (row.startDate() == null)
+            throw new IllegalArgumentException("startDate is required");
+        final LocalDate start = row.startDate();
+        final LocalDate limit = row.limitDate() != null ? row.limitDate() : start.plusDays(lendingDurationInDays);
+        if (limit.isBefore(start))
+            throw new IllegalArgumentException("limitDate is before startDate");
+        if (row.returnedDate() != null && row.returnedDate().isBefore(start))
+            throw new IllegalArgumentException("returnedDate is before startDate");
+        final int finePerDay = row.fineValuePerDayInCents() != null ? row.fineValuePerDayInCents() : fineValuePerDayInCents;
+        if (finePerDay < 0)
+            throw new IllegalArgumentException("Fine value cannot be negative");
+        if (row.commentary() != null && row.commentary().length() > MAX_COMMENTARY_LENGTH)
+            throw new IllegalArgumentException("commentary is longer than " + MAX_COMMENTARY_LENGTH + " characters");
+
+        return new ValidRow(line, year, seq, year + "/" + seq, required(row.readerNumber(), "readerNumber"),
+                required(row.bookIsbn(), "bookIsbn"), row.bookTitle() == null || row.bookTitle().isBlank() ? DEFAULT_TITLE : row.bookTitle(),
+                start, row.returnedDate(), (int) ChronoUnit.DAYS.between(start, limit), finePerDay, row.commentary());
+    }
+
+    /** On the calling thread, in file order, so a number repeated later in the file is found taken. */
+    private void write(ParsedChunk chunk, Report report) {
+        chunk.rejected.forEach(report::reject);
+        if (chunk.valid.isEmpty())
+            return;
+
+        final Map<String, ReaderDetails> readers = new HashMap<>();
+        for (ReaderDetails reader : readerRepository.findByReaderNumbers(
+                chunk.valid.stream().map(ValidRow::readerNumber).distinct().toList()))
+            readers.put(reader.getReaderNumber(), reader);
+        final Set<String> taken = new HashSet<>(lendingRepository.findExistingLendingNumbers(
+                chunk.valid.stream().map(ValidRow::lendingNumber).toList()));
+
+        final List<ValidRow> accepted = new ArrayList<>(chunk.valid.size());
+        final List<Lending> lendings = new ArrayList<>(chunk.valid.size());
+        for (ValidRow row : chunk.valid) {
+            final ReaderDetails reader = readers.get(row.readerNumber());
+            if (reader == null) {
+                report.reject(new LendingImportReport.Rejection(row.line(), "Reader not found"));
+            } else if (!taken.add(row.lendingNumber())) {
+                report.reject(new LendingImportReport.Rejection(row.line(), "Lending " + row.lendingNumber() + " already exists"));
+            } else {
+                final Lending lending = Lending.newBootstrappingLending(row.bookIsbn(), row.bookTitle(), reader,
+                        row.year(), row.seq(), row.startDate(), row.returnedDate(), row.lendingDuration(), row.fineValuePerDayInCents());
+                lending.setCommentary(row.commentary());
+                accepted.add(row);
+                lendings.add(lending);
+            }
+        }
+        if (lendings.isEmpty())
+            return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lendingRepository.saveAll(lendings);
+                final List<Lending> open = lendings.stream().filter(l -> l.getReturnedDate() == null).toList();
+                final List<Lending> returned = lendings.stream().filter(l -> l.getReturnedDate() != null).toList();
+                // history, so the three-lendings rule doesn't apply
+                countersService.lentElsewhere(open);
+                dueDateIndex.lent(open);
+                durationStatsService.recordReturned(returned);
+            });
+            report.imported(lendings.size());
+        } catch (DataAccessException e) {
+            // e.g. a number inserted meanwhile by another import; the whole chunk was rolled back
+            for (ValidRow row : accepted)
+                report.reject(new LendingImportReport.Rejection(row.line(), "Could not be saved: " + e.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    private static String required(String value, String column) {
+        if (value == null || value.isBlank())
+            throw new IllegalArgumentException(column + " is required");
+        return value.trim();
+    }
+
+    private static Map<String, Integer> csvColumns(String header) {
+        final List<String> names = csvFields(header);
+        final Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++)
+            columns.put(names.get(i).trim(), i);
+        for (String column : List.of("lendingNumber", "readerNumber", "bookIsbn", "startDate"))
+            if (!columns.containsKey(column))
+                throw new IllegalArgumentException("The CSV header has no " + column + " column");
+        return columns;
+    }
+
+    private static LendingImportRow csvRow(String line, Map<String, Integer> columns) {
+        final List<String> fields = csvFields(line);
+        final String fine = csvField(fields, columns, "fineValuePerDayInCents");
+        try {
+            return new LendingImportRow(csvField(fields, columns, "lendingNumber"), csvField(fields, columns, "readerNumber"),
+                    csvField(fields, columns, "bookIsbn"), csvField(fields, columns, "bookTitle"),
+                    csvDate(fields, columns, "startDate"), csvDate(fields, columns, "limitDate"),
+                    csvDate(fields, columns, "returnedDate"), fine == null ? null : Integer.valueOf(fine.trim()),
+                    csvField(fields, columns, "commentary"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("fineValuePerDayInCents must be a whole number");
+        }
+    }
+
+    /** Null when the column is missing or the field empty. */
+    private static String csvField(List<String> fields, Map<String, Integer> columns, String column) {
+        final Integer index = columns.get(column);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty())
+            return null;
+        return fields.get(index);
+    }
+
+    private static LocalDate csvDate(List<String> fields, Map<String, Integer> columns, String column) {
+        final String value = csvField(fields, columns, column);
+        return value == null ? null : LocalDate.parse(value.trim());
+    }
+
+    /** RFC 4180 fields of one line; a quoted field can't span lines here. */
+    static List<String> csvFields(String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"')
+                    field.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"')
+                    field.append(line.charAt(++i));
+                else
+                    quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted)
+            throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record ValidRow(long line, int year, int seq, String lendingNumber, String readerNumber, String bookIsbn,
+                            String bookTitle, LocalDate startDate, LocalDate returnedDate, int lendingDuration,
+                            int fineValuePerDayInCents, String commentary) {
+    }
+
+    private static final class ParsedChunk {
+        private final List<ValidRow> valid;
+        private final List<LendingImportReport.Rejection> rejected = new ArrayList<>();
+
+        private ParsedChunk(int size) {
+            this.valid = new ArrayList<>(size);
+        }
+    }
+
+    /** Only touched by the writer. */
+    private static final class Report {
+        private final int maxRejections;
+        private final List<LendingImportReport.Rejection> rejections = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        private Report(int maxRejections) {
+            this.maxRejections = maxRejections;
+        }
+
+        void imported(int count) {
+            imported += count;
+        }
+
+        void reject(LendingImportReport.Rejection rejection) {
+            rejected++;
+            if (rejections.size() < maxRejections)
+                rejections.add(rejection);
+        }
+
+        LendingImportReport toReport(long elapsedNanos) {
+            final long read = imported + rejected;
+            return new LendingImportReport(read, imported, rejected, List.copyOf(rejections),
+                    elapsedNanos / 1_000_000, elapsedNanos == 0 ? 0 : read / (elapsedNanos / 1e9));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ProcessedLendingEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingInboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Remembers which lending events were already applied, so a redelivered or replayed event is dropped with
+ * a primary-key lookup instead of being applied twice.
+ * <p>
+ * The entry is written in the transaction that applies the event: if that rolls back the event is
+ * applied again on redelivery, and two concurrent deliveries of the same event can't both commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class LendingInbox {
+    private final LendingInboxRepository inboxRepository;
+
+    @Value("${lending-inbox.retention-hours:168}")
+    private long retentionHours = 168;
+
+    /**
+     * Id of an event, the same on every instance and every delivery: a lending's version changes with each
+     * update, so routing key, lending number and version identify one change.
+     */
+    public static String messageId(String routingKey, LendingViewAMQP view) {
+        return routingKey + ":" + view.getLendingNumber() + ":" + view.getVersion();
+    }
+
+    /**
+     * Records the event as processed.
+     * @return false when it already was, and must be skipped
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean accept(String messageId) {
+        if (inboxRepository.existsById(messageId)) return false;
+        inboxRepository.save(new ProcessedLendingEvent(messageId));
+        return true;
+    }
+
+    /** Records events known to be new, such as those this instance has just published, without looking them up. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<String> messageIds) {
+        inboxRepository.saveAll(messageIds.stream().map(ProcessedLendingEvent::new).toList());
+    }
+
+    @Scheduled(fixedDelayString = "${lending-inbox.purge-interval-ms:3600000}")
+    @Transactional
+    public void purge() {
+        int purged = inboxRepository.deleteProcessedBefore(Instant.now().minus(Duration.ofHours(retentionHours)));
+        if (purged > 0) {
+            System.out.println(" [x] Purged " + purged + " processed lending events");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingNumber;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceBlockLeaser;
+import pt.psoft.g1.psoftg1.shared.services.YearlySequenceAllocator;
+
+/**
+ * Allocates the sequential component of new {@link LendingNumber}s.
+ * <p>
+ * Replaces counting the lendings of the current year on every creation, which was a table scan and
+ * handed out duplicates when two creations ran at the same time. Instances with their own database are
+ * given distinct {@code sequenceNodeIndex}es out of {@code sequenceNodeCount}, so they never hand out the
+ * same number either.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class LendingNumberAllocator {
+    static final String SEQUENCE_NAME = "LENDING";
+
+    private final YearlySequenceAllocator allocator;
+
+    public LendingNumberAllocator(SequenceBlockLeaser leaser,
+                                  LendingRepository lendingRepository,
+                                  @Value("${lendingNumberBlockSize:50}") int blockSize,
+                                  @Value("${sequenceNodeIndex:0}") int nodeIndex,
+                                  @Value("${sequenceNodeCount:1}") int nodeCount) {
+        this.allocator = new YearlySequenceAllocator(SEQUENCE_NAME, blockSize, nodeIndex, nodeCount, leaser,
+                year -> {
+                    Integer max = lendingRepository.getMaxSequenceFromYear(year + "/%");
+                    return max == null ? 0 : max;
+                });
+    }
+
+    public int nextSequential(int year) {
+        return Math.toIntExact(allocator.next(year));
+    }
+
+    /** Keeps {@code seq} of {@code year}, taken by a lending created elsewhere, from being handed out here. */
+    public void advancePast(int year, int seq) {
+        allocator.advancePast(year, seq);
+    }
+}
@@ -1,6 +1,8 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.services;
 
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
@@ -20,11 +22,22 @@ public interface LendingService {
      */
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned);
     Lending create(CreateLendingRequest resource); //No ID passed, as it is auto generated
+    /** Creates each lending it can; the result of each request is at the same index. */
+    List<LendingBatchResult> createAll(List<CreateLendingRequest> resources);
     Lending setReturned(String id, SetLendingReturnedRequest resource, long desiredVersion);
+    /**
+     * Returns each lending it can; the result of each request is at the same index.
+     * @param readerNumber when not null, only lendings of this reader may be returned
+     */
+    List<LendingBatchResult> setReturnedAll(List<ReturnLendingRequest> resources, String readerNumber);
+    /** Replicates a lending created on another instance, keeping its number; publishes nothing. */
+    Lending create(LendingViewAMQP lendingViewAMQP);
+    /** Replicates a return done on another instance; publishes nothing. */
+    Lending setReturned(LendingViewAMQP lendingViewAMQP);
     Double getAverageDuration();
-    List<Lending> getOverdue(Page page);
+    List<LendingSummary> getOverdue(Page page);
     Double getAvgLendingDurationByIsbn(String isbn);
-    List<Lending> searchLendings(Page page, SearchLendingQuery request);
+    List<LendingSummary> searchLendings(Page page, SearchLendingQuery request);
 
 
 }
@@ -3,12 +3,17 @@ package pt.psoft.g1.psoftg1.lendingmanagement.services;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
 import pt.psoft.g1.psoftg1.lendingmanagement.publishers.LendingEventsPublisher;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
@@ -18,9 +23,8 @@ import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.Locale;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -32,6 +36,11 @@ public class LendingServiceImpl implements LendingService {
     private final ReaderRepository readerRepository;
 
     private final LendingEventsPublisher lendingEventsPublisher;
+    private final LendingNumberAllocator lendingNumberAllocator;
+    private final LendingDurationStatsService durationStatsService;
+    private final ReaderLendingCountersService countersService;
+    private final ReaderLocks readerLocks;
+    private final LendingDueDateIndex dueDateIndex;
 
     @Value("${lendingDurationInDays}")
     private int lendingDurationInDays;
@@ -60,37 +69,29 @@ public class LendingServiceImpl implements LendingService {
     }
 
     @Override
+    @Transactional
     public Lending create(final CreateLendingRequest resource) {
-        int count = 0;
-
-        Iterable<Lending> lendingList = lendingRepository.listOutstandingByReaderNumber(resource.getReaderNumber());
-        for (Lending lending : lendingList) {
-            // Business rule: cannot create a lending if user has late outstanding books to return.
-            if (lending.getDaysDelayed() > 0) {
-                throw new LendingForbiddenException("Reader has book(s) past their due date");
-            }
-            count++;
-            // Business rule: cannot create a lending if user already has 3 outstanding books to return.
-            if (count >= 3) {
-                throw new LendingForbiddenException("Reader has three books outstanding already");
-            }
-        }
+        readerLocks.lockUntilCompletion(List.of(resource.getReaderNumber()));
+        final var r = readerRepository.findByReaderNumber(resource.getReaderNumber())
+                .orElseThrow(() -> new NotFoundException("Reader not found"));
+        // Business rules: cannot create a lending if user has late outstanding books to return,
+        // or already has 3 outstanding books to return.
+        countersService.checkMayBorrow(resource.getReaderNumber(), LocalDate.now());
 
         // Removed Book Repository check. 
         // We assume the ISBN is valid or validated by an upstream service/gateway.
         String isbn = resource.getIsbn();
         String bookTitle = "Title Unavailable"; // Placeholder as we don't have Book entity
 
-        final var r = readerRepository.findByReaderNumber(resource.getReaderNumber())
-                .orElseThrow(() -> new NotFoundException("Reader not found"));
-        
-        int seq = lendingRepository.getCountFromCurrentYear() + 1;
         int year = LocalDate.now().getYear();
+        int seq = lendingNumberAllocator.nextSequential(year);
 
         // Updated Constructor call
         final Lending l = new Lending(isbn, bookTitle, r, year, seq, LocalDate.now(), null, lendingDurationInDays, fineValuePerDayInCents);
 
         Lending createdLending = lendingRepository.save(l);
+        countersService.lent(List.of(createdLending));
+        dueDateIndex.lent(List.of(createdLending));
 
         if (createdLending != null) {
             lendingEventsPublisher.sendLendingCreated(createdLending);
@@ -99,7 +100,67 @@ public class LendingServiceImpl implements LendingService {
         return createdLending;
     }
 
+    /**
+     * Same rules as {@link #create(CreateLendingRequest)}, checked in request order, with a lending accepted
+     * earlier in the batch counting as outstanding for the later ones. Readers and their lending
+     * counters are loaded in one query each, the numbers taken from the allocator's in-memory block, and the
+     * lendings and their events inserted in batches.
+     */
     @Override
+    @Transactional
+    public List<LendingBatchResult> createAll(final List<CreateLendingRequest> resources) {
+        final Set<String> readerNumbers = resources.stream()
+                .map(CreateLendingRequest::getReaderNumber)
+                .collect(Collectors.toSet());
+        final Map<String, ReaderDetails> readers = new HashMap<>();
+        for (ReaderDetails reader : readerRepository.findByReaderNumbers(readerNumbers))
+            readers.put(reader.getReaderNumber(), reader);
+        readerLocks.lockUntilCompletion(readers.keySet());
+        final Map<String, ReaderLendingCounters> counters = countersService.findByReaderNumbers(readers.keySet());
+        final LocalDate today = LocalDate.now();
+
+        final List<LendingBatchResult> results = new ArrayList<>(Collections.nCopies(resources.size(), null));
+        final List<Integer> accepted = new ArrayList<>();
+        final Map<String, Integer> outstandingCount = new HashMap<>();
+        for (int i = 0; i < resources.size(); i++) {
+            final String readerNumber = resources.get(i).getReaderNumber();
+            final ReaderLendingCounters readerCounters = counters.get(readerNumber);
+            final int count = outstandingCount.getOrDefault(readerNumber,
+                    readerCounters == null ? 0 : readerCounters.getOutstandingCount());
+            if (!readers.containsKey(readerNumber)) {
+                results.set(i, LendingBatchResult.failed(i, new NotFoundException("Reader not found")));
+            } else if (readerCounters != null && readerCounters.hasOverdue(today)) {
+                results.set(i, LendingBatchResult.failed(i, new LendingForbiddenException("Reader has book(s) past their due date")));
+            } else if (count >= ReaderLendingCountersService.MAX_OUTSTANDING) {
+                results.set(i, LendingBatchResult.failed(i, new LendingForbiddenException("Reader has three books outstanding already")));
+            } else {
+                outstandingCount.put(readerNumber, count + 1);
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        final int year = today.getYear();
+        final List<Lending> created = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            final CreateLendingRequest resource = resources.get(i);
+            final Lending lending = new Lending(resource.getIsbn(), "Title Unavailable", readers.get(resource.getReaderNumber()),
+                    year, lendingNumberAllocator.nextSequential(year), today, null, lendingDurationInDays, fineValuePerDayInCents);
+            created.add(lending);
+            results.set(i, LendingBatchResult.ok(i, lending));
+        }
+        lendingRepository.saveAll(created);
+        countersService.lent(created);
+        dueDateIndex.lent(created);
+        lendingEventsPublisher.sendLendingsCreated(created);
+
+        return results;
+    }
+
+    @Override
+    @Transactional
     public Lending create(LendingViewAMQP lendingViewAMQP) {
 
         lendingRepository.findByLendingNumber(lendingViewAMQP.getLendingNumber())
@@ -118,20 +179,26 @@ public class LendingServiceImpl implements LendingService {
         String[] parts = lendingViewAMQP.getLendingNumber().split("/");
         int year = Integer.parseInt(parts[0]);
         int seq = Integer.parseInt(parts[1]);
+        lendingNumberAllocator.advancePast(year, seq);
 
         final Lending l = new Lending(isbn, bookTitle, r, year, seq, LocalDate.now(), null, lendingDurationInDays, fineValuePerDayInCents);
 
-        return lendingRepository.save(l);
+        final Lending created = lendingRepository.save(l);
+        countersService.lentElsewhere(List.of(created));
+        dueDateIndex.lent(List.of(created));
+        return created;
     }
 
 
     @Override
+    @Transactional
     public Lending setReturned(final String lendingNumber, final SetLendingReturnedRequest resource, final long desiredVersion) {
 
         var lending = lendingRepository.findByLendingNumber(lendingNumber)
                 .orElseThrow(() -> new NotFoundException("Cannot update lending with this lending number"));
 
         lending.setReturned(LocalDate.now(), resource.getCommentary()); // Fixed: setReturned signature update in Entity
+        durationStatsService.recordReturned(lending);
 
         if (lending.getDaysDelayed() > 0) {
             final var fine = new Fine(lending);
@@ -139,6 +206,8 @@ public class LendingServiceImpl implements LendingService {
         }
 
         Lending updatedLending = lendingRepository.save(lending);
+        countersService.returned(List.of(updatedLending));
+        dueDateIndex.returned(List.of(updatedLending));
 
         if (updatedLending != null) {
             lendingEventsPublisher.sendLendingUpdated(updatedLending, desiredVersion);
@@ -147,13 +216,64 @@ public class LendingServiceImpl implements LendingService {
         return updatedLending;
     }
 
+    /**
+     * Loads every lending with one query and returns them in memory; their fines are created with them
+     * (cascaded from the lending) and everything is flushed in JDBC batches on commit. A stale version,
+     * an already returned lending or a lending of another reader only fails its own item.
+     */
     @Override
+    @Transactional
+    public List<LendingBatchResult> setReturnedAll(final List<ReturnLendingRequest> resources, final String readerNumber) {
+        final Map<String, Lending> lendings = new HashMap<>();
+        for (Lending lending : lendingRepository.findByLendingNumbers(
+                resources.stream().map(ReturnLendingRequest::getLendingNumber).collect(Collectors.toSet())))
+            lendings.put(lending.getLendingNumber(), lending);
+
+        final LocalDate today = LocalDate.now();
+        final List<LendingBatchResult> results = new ArrayList<>(resources.size());
+        final List<Lending> returned = new ArrayList<>();
+        final List<Long> versions = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            final ReturnLendingRequest resource = resources.get(i);
+            final Lending lending = lendings.get(resource.getLendingNumber());
+            try {
+                if (lending == null)
+                    throw new NotFoundException(Lending.class, resource.getLendingNumber());
+                if (readerNumber != null && !readerNumber.equals(lending.getReaderDetails().getReaderNumber()))
+                    throw new AccessDeniedException("Reader does not have permission to edit this lending");
+                if (lending.getVersion() != resource.getVersion())
+                    throw new ConflictException("Lending " + lending.getLendingNumber() + " is at version " + lending.getVersion());
+                lending.setReturned(today, resource.getCommentary());
+            } catch (NotFoundException | AccessDeniedException | ConflictException e) {
+                results.add(LendingBatchResult.failed(i, e));
+                continue;
+            }
+            returned.add(lending);
+            versions.add(resource.getVersion());
+            results.add(LendingBatchResult.ok(i, lending));
+        }
+        if (returned.isEmpty()) {
+            return results;
+        }
+
+        durationStatsService.recordReturned(returned);
+        lendingRepository.saveAll(returned);
+        countersService.returned(returned);
+        dueDateIndex.returned(returned);
+        lendingEventsPublisher.sendLendingsUpdated(returned, versions);
+
+        return results;
+    }
+
+    @Override
+    @Transactional
     public Lending setReturned(final String lendingNumber, SetLendingReturnedWithRecommendationRequest resource, final long desiredVersion) {
         var lending = lendingRepository.findByLendingNumber(lendingNumber)
                 .orElseThrow(() -> new NotFoundException("Cannot update lending with this lending number"));
 
 
         lending.setReturned(LocalDate.now(), resource.getCommentary());
+        durationStatsService.recordReturned(lending);
 
         if (lending.getDaysDelayed() > 0) {
             final var fine = new Fine(lending);
@@ -161,6 +281,8 @@ public class LendingServiceImpl implements LendingService {
         }
 
         Lending updatedLending = lendingRepository.save(lending);
+        countersService.returned(List.of(updatedLending));
+        dueDateIndex.returned(List.of(updatedLending));
 
         if (updatedLending != null) {
             lendingEventsPublisher.sendLendingUpdated(updatedLending, desiredVersion);
@@ -171,45 +293,48 @@ public class LendingServiceImpl implements LendingService {
     }
 
     @Override
+    @Transactional
     public Lending setReturned(LendingViewAMQP lendingViewAMQP) {
         var lending = lendingRepository.findByLendingNumber(lendingViewAMQP.getLendingNumber())
                 .orElseThrow(() -> new NotFoundException("Cannot update lending with this lending number"));
 
         // Assuming version logic is handled or bypassed for AMQP sync
         lending.setReturned(lendingViewAMQP.getReturnedDate(), lendingViewAMQP.getCommentary());
+        durationStatsService.recordReturned(lending);
 
         if (lending.getDaysDelayed() > 0) {
             final var fine = new Fine(lending);
             fineRepository.save(fine);
         }
 
-        return lendingRepository.save(lending);
+        final Lending updated = lendingRepository.save(lending);
+        countersService.returned(List.of(updated));
+        dueDateIndex.returned(List.of(updated));
+        return updated;
     }
 
     @Override
     public Double getAverageDuration() {
-        Double avg = lendingRepository.getAverageDuration();
-        if (avg == null) return 0.0;
-        return Double.valueOf(String.format(Locale.US, "%.1f", avg));
+        return durationStatsService.getAverageDuration()
+                .map(avg -> Double.valueOf(String.format(Locale.US, "%.1f", avg)))
+                .orElse(0.0);
     }
 
     @Override
-    public List<Lending> getOverdue(Page page) {
-        if (page == null) {
-            page = new Page(1, 10);
-        }
-        return lendingRepository.getOverdue(page);
+    public List<LendingSummary> getOverdue(Page page) {
+        final Page requested = page != null ? page : new Page(1, 10);
+        return dueDateIndex.getOverdue(requested).orElseGet(() -> lendingRepository.getOverdue(requested));
     }
 
     @Override
     public Double getAvgLendingDurationByIsbn(String isbn) {
-        Double avg = lendingRepository.getAvgLendingDurationByIsbn(isbn);
-        if (avg == null) return 0.0;
-        return Double.valueOf(String.format(Locale.US, "%.1f", avg));
+        return durationStatsService.getAverageDuration(isbn)
+                .map(avg -> Double.valueOf(String.format(Locale.US, "%.1f", avg)))
+                .orElse(0.0);
     }
 
     @Override
-    public List<Lending> searchLendings(Page page, SearchLendingQuery query) {
+    public List<LendingSummary> searchLendings(Page page, SearchLendingQuery query) {
         LocalDate startDate = null;
         LocalDate endDate = null;
 
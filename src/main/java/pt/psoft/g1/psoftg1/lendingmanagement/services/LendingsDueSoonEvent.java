@@ -0,0 +1,8 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** Open lendings whose limit date is {@code lending-due-dates.due-soon-days} after {@code day}; one batch of them. */
+public record LendingsDueSoonEvent(LocalDate day, List<String> lendingNumbers) {
+}
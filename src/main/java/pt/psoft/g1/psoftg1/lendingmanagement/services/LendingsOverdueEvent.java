@@ -0,0 +1,8 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** Open lendings that became overdue on {@code day}; one batch of them. */
+public record LendingsOverdueEvent(LocalDate day, List<String> lendingNumbers) {
+}
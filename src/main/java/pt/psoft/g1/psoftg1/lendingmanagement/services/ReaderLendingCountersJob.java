@@ -0,0 +1,34 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Checks the reader lending counters against the lendings on startup, which also builds the rows no
+ * request has built yet the first time, and on {@code reader-lending-counters.check-cron}. Each reader whose row disagrees is repaired on
+ * its own, under a lock on its row; the rest of the table is left alone.
+ */
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class ReaderLendingCountersJob {
+    private final ReaderLendingCountersService countersService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${reader-lending-counters.check-cron:0 0 3 * * *}")
+    public void verify() {
+        final Map<String, String> mismatches = countersService.check();
+        if (mismatches.isEmpty())
+            return;
+        System.out.println(" [!] " + mismatches.size() + " reader lending counters disagree with the lendings, e.g. "
+                + mismatches.values().iterator().next() + "; repairing them");
+        for (String readerNumber : mismatches.keySet())
+            countersService.repair(readerNumber);
+    }
+}
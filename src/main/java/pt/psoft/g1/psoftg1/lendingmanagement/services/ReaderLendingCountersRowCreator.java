@@ -0,0 +1,27 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderLendingCountersRepository;
+
+/**
+ * Inserts a reader's counters row, computed from their committed lendings, in its own transaction, so that
+ * a concurrent insert for the same reader fails here with a
+ * {@link org.springframework.dao.DataIntegrityViolationException} instead of rolling back the caller's
+ * transaction. Lendings the caller created or returned but hasn't committed are not in the row; the caller
+ * applies them next.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReaderLendingCountersRowCreator {
+    private final ReaderLendingCountersRepository repo;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void create(String readerNumber) {
+        repo.save(new ReaderLendingCounters(readerNumber));
+        repo.recount(readerNumber);
+    }
+}
@@ -0,0 +1,203 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineTotal;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderLendingCountersRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link ReaderLendingCounters} in step with the lendings, in the transaction that creates or
+ * returns them, and checks the lending rules against them.
+ * <p>
+ * A missing row, as every row is on the first deploy, is never taken for "no open lendings": it is built
+ * from the reader's lendings the first time the reader is checked or counted, so the rules hold from the
+ * first request rather than from the startup check. Rows are compared with the lendings by {@link #check()},
+ * and a wrong or missing one is recomputed by {@link #repair(String)}.
+ * <p>
+ * The rules are checked against this instance's database only. A lending replicated from another instance
+ * is counted even when it takes the reader past {@link #MAX_OUTSTANDING}, as both instances may have
+ * lent the reader's last slot at once; each such lending is logged and counted on
+ * {@code lendings.replicated.over.limit}.
+ */
+@Service
+public class ReaderLendingCountersService {
+    /** Most lendings a reader may have open at once. */
+    public static final int MAX_OUTSTANDING = 3;
+
+    private final ReaderLendingCountersRepository countersRepository;
+    private final ReaderLendingCountersRowCreator rowCreator;
+    private final LendingRepository lendingRepository;
+    private final FineAccrualRepository fineAccrualRepository;
+    private final Counter replicatedOverLimit;
+
+    public ReaderLendingCountersService(ReaderLendingCountersRepository countersRepository,
+                                        ReaderLendingCountersRowCreator rowCreator,
+                                        LendingRepository lendingRepository,
+                                        FineAccrualRepository fineAccrualRepository,
+                                        MeterRegistry meterRegistry) {
+        this.countersRepository = countersRepository;
+        this.rowCreator = rowCreator;
+        this.lendingRepository = lendingRepository;
+        this.fineAccrualRepository = fineAccrualRepository;
+        this.replicatedOverLimit = Counter.builder("lendings.replicated.over.limit")
+                .description("Lendings replicated from another instance that took a reader past the open lendings limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Throws {@link LendingForbiddenException} when the reader may not borrow on {@code today}; one
+     * primary-key read once the reader has a row.
+     */
+    public void checkMayBorrow(String readerNumber, LocalDate today) {
+        checkMayBorrow(findOrBuild(readerNumber), today);
+    }
+
+    public static void checkMayBorrow(ReaderLendingCounters counters, LocalDate today) {
+        if (counters.hasOverdue(today))
+            throw new LendingForbiddenException("Reader has book(s) past their due date");
+        if (counters.getOutstandingCount() >= MAX_OUTSTANDING)
+            throw new LendingForbiddenException("Reader has three books outstanding already");
+    }
+
+    /** The counters of the readers, in one query once they all have a row. Only pass readers that exist. */
+    public Map<String, ReaderLendingCounters> findByReaderNumbers(Collection<String> readerNumbers) {
+        final Map<String, ReaderLendingCounters> counters = new HashMap<>();
+        countersRepository.findAllById(readerNumbers).forEach(c -> counters.put(c.getReaderNumber(), c));
+        for (String readerNumber : readerNumbers)
+            if (!counters.containsKey(readerNumber))
+                counters.put(readerNumber, findOrBuild(readerNumber));
+        return counters;
+    }
+
+    private ReaderLendingCounters findOrBuild(String readerNumber) {
+        return countersRepository.findById(readerNumber).orElseGet(() -> {
+            createRow(readerNumber);
+            return countersRepository.findById(readerNumber).orElseThrow();
+        });
+    }
+
+    private void createRow(String readerNumber) {
+        try {
+            rowCreator.create(readerNumber);
+        } catch (DataIntegrityViolationException e) {
+            // another transaction created it first, which is just as good
+        }
+    }
+
+    /**
+     * Counts lendings just created here. Fails with {@link LendingForbiddenException} if a concurrent
+     * creation took the reader's last slot since {@link #checkMayBorrow} was called.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lent(Collection<Lending> lendings) {
+        byReader(lendings).forEach((readerNumber, lent) -> {
+            if (!add(readerNumber, lent, MAX_OUTSTANDING))
+                throw new LendingForbiddenException("Reader has three books outstanding already");
+        });
+    }
+
+    /**
+     * Counts lendings replicated from another instance, which applied the rules against its own database;
+     * those that take the reader past {@link #MAX_OUTSTANDING} here are counted all the same, and reported.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lentElsewhere(Collection<Lending> lendings) {
+        byReader(lendings).forEach((readerNumber, lent) -> {
+            if (add(readerNumber, lent, MAX_OUTSTANDING))
+                return;
+            add(readerNumber, lent, Integer.MAX_VALUE);
+            replicatedOverLimit.increment(lent.size());
+            System.out.println(" [!] Replicated lending(s) " + lent.stream().map(Lending::getLendingNumber).toList()
+                    + " take reader " + readerNumber + " past " + MAX_OUTSTANDING + " open lendings");
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void returned(Collection<Lending> lendings) {
+        byReader(lendings).forEach((readerNumber, returned) -> {
+            if (countersRepository.removeOutstanding(readerNumber, returned.size()) == 0) {
+                // built without this transaction's returns, which are then taken off like any other
+                createRow(readerNumber);
+                countersRepository.removeOutstanding(readerNumber, returned.size());
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshAccruedFines(Collection<String> readerNumbers) {
+        if (!readerNumbers.isEmpty())
+            countersRepository.refreshAccruedFines(readerNumbers);
+    }
+
+    /** @return false when the lendings would take the reader past {@code max} */
+    private boolean add(String readerNumber, List<Lending> lent, int max) {
+        final LocalDate earliest = lent.stream().map(Lending::getLimitDate).min(Comparator.naturalOrder()).orElseThrow();
+        if (countersRepository.addOutstanding(readerNumber, lent.size(), earliest, max) > 0)
+            return true;
+        if (countersRepository.findById(readerNumber).isPresent())
+            return false;
+        // built without this transaction's lendings, which are then added like any other
+        createRow(readerNumber);
+        return countersRepository.addOutstanding(readerNumber, lent.size(), earliest, max) > 0;
+    }
+
+    private static Map<String, List<Lending>> byReader(Collection<Lending> lendings) {
+        return lendings.stream().collect(Collectors.groupingBy(l -> l.getReaderDetails().getReaderNumber()));
+    }
+
+    /**
+     * Recomputes the reader's row from their lendings, creating it if missing. The row is locked first and
+     * recounted by a later statement: a creation or return that already changed the row has committed by
+     * then and is counted, and one that hasn't waits for this transaction. So it is safe while lendings
+     * keep coming.
+     */
+    @Transactional
+    public void repair(String readerNumber) {
+        if (countersRepository.lock(readerNumber) == 0) {
+            createRow(readerNumber);
+            countersRepository.lock(readerNumber);
+        }
+        countersRepository.recount(readerNumber);
+    }
+
+    /**
+     * Compares the rows with the lendings.
+     * @return by reader number, a description of each row that is wrong or missing
+     */
+    @Transactional(readOnly = true)
+    public Map<String, String> check() {
+        final Map<String, ReaderLendingCounters> expected = compute();
+        final Map<String, String> mismatches = new LinkedHashMap<>();
+        for (ReaderLendingCounters stored : countersRepository.findAll()) {
+            final ReaderLendingCounters computed = expected.remove(stored.getReaderNumber());
+            final ReaderLendingCounters wanted = computed != null ? computed : new ReaderLendingCounters(stored.getReaderNumber());
+            if (!stored.sameCountsAs(wanted))
+                mismatches.put(stored.getReaderNumber(), "stored " + stored + ", expected " + wanted);
+        }
+        for (ReaderLendingCounters missing : expected.values())
+            mismatches.put(missing.getReaderNumber(), "missing " + missing);
+        return mismatches;
+    }
+
+    private Map<String, ReaderLendingCounters> compute() {
+        final Map<String, ReaderLendingCounters> counters = new HashMap<>();
+        for (ReaderLendingCounters c : lendingRepository.countOutstandingByReader())
+            counters.put(c.getReaderNumber(), c);
+        for (ReaderFineTotal fines : fineAccrualRepository.sumOutstandingByReader())
+            counters.computeIfAbsent(fines.readerNumber(), ReaderLendingCounters::new).setAccruedFineCents(fines.cents());
+        return counters;
+    }
+}
@@ -0,0 +1,81 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes lending creations of the same reader within this node, so they don't all pass the lending
+ * rules and then race on the reader's counters row; creations of different readers only share a lock when
+ * their reader numbers hash to the same stripe.
+ * <p>
+ * The locks are held until the current transaction completes, so the next creation for the reader sees
+ * the counters as committed. They, and the conditional update of the counters row behind them, only reach
+ * as far as this instance's database: every instance keeps its own, so two instances can each lend a
+ * reader's last slot at once. The second lending reaches the other instance by replication, and is counted
+ * there and reported by {@link ReaderLendingCountersService#lentElsewhere}.
+ */
+@Component
+public class ReaderLocks {
+    // locks rather than monitors: a stripe stays held from the rules check until the transaction completes,
+    // which no synchronized block can span, and is waited for with a timeout
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+
+    public ReaderLocks(@Value("${reader-locks.stripes:256}") int stripes,
+                       @Value("${reader-locks.timeout-ms:5000}") long timeoutMs) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("Stripe count must be positive");
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++)
+            this.stripes[i] = new ReentrantLock();
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Locks the stripes of the readers, in stripe order so two batches can't deadlock, until the current
+     * transaction completes.
+     * @throws ConflictException when a stripe isn't free within {@code reader-locks.timeout-ms}
+     */
+    public void lockUntilCompletion(Collection<String> readerNumbers) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("Reader locks are only released when a transaction completes");
+
+        final int[] indexes = readerNumbers.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (; locked < indexes.length; locked++) {
+                if (!stripes[indexes[locked]].tryLock(timeoutMs, TimeUnit.MILLISECONDS))
+                    throw new ConflictException("Another lending for this reader is still being created");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for another lending of this reader");
+        } finally {
+            if (locked < indexes.length)
+                unlock(indexes, locked);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(indexes, indexes.length);
+            }
+        });
+    }
+
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--)
+            stripes[indexes[i]].unlock();
+    }
+
+    private int stripeOf(String readerNumber) {
+        return Math.floorMod(readerNumber.hashCode(), stripes.length);
+    }
+}
@@ -0,0 +1,25 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A DTO for setting one Lending of a batch as returned")
+public class ReturnLendingRequest {
+    @NotBlank
+    private String lendingNumber;
+
+    /** The version the client last saw, as it would send in If-Match. */
+    @NotNull
+    private Long version;
+
+    @Size(max = 1024)
+    private String commentary;
+}
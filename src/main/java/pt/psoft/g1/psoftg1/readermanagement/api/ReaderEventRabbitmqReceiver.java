@@ -1,27 +1,25 @@
 package pt.psoft.g1.psoftg1.readermanagement.api;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderNumberCache;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
-
-import java.nio.charset.StandardCharsets;
+import pt.psoft.g1.psoftg1.shared.api.AmqpJsonCodec;
 
 @Component
 @RequiredArgsConstructor
 public class ReaderEventRabbitmqReceiver {
     private final ReaderService readerService;
+    private final AmqpJsonCodec amqpJsonCodec;
+    private final ReaderNumberCache readerNumberCache;
 
-    @RabbitListener(queues = "#{autoDeleteQueue_Reader_Created.name}")
+    @RabbitListener(queues = "#{queue_Reader_Created.name}", containerFactory = "readerContainerFactory")
     public void receiveReaderCreated(Message msg) {
 
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-
-            String jsonReceived = new String(msg.getBody(), StandardCharsets.UTF_8);
-            ReaderViewAMQP readerViewAMQP = objectMapper.readValue(jsonReceived, ReaderViewAMQP.class);
+            ReaderViewAMQP readerViewAMQP = amqpJsonCodec.decode(msg, ReaderViewAMQP.class);
 
             System.out.println(" [x] Received Reader Created by AMQP: " + msg + ".");
             try {
@@ -30,20 +28,19 @@ public class ReaderEventRabbitmqReceiver {
             } catch (Exception e) {
                 System.out.println(" [x] Reader already exists. No need to store it.");
             }
+            // after the change is committed, so the next lookup can't cache the old reader number
+            readerNumberCache.invalidate(readerViewAMQP.getUsername());
         }
         catch(Exception ex) {
             System.out.println(" [x] Exception receiving reader event from AMQP: '" + ex.getMessage() + "'");
         }
     }
 
-    @RabbitListener(queues = "#{autoDeleteQueue_Reader_Updated.name}")
+    @RabbitListener(queues = "#{queue_Reader_Updated.name}", containerFactory = "readerContainerFactory")
     public void receiveReaderUpdated(Message msg) {
 
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-
-            String jsonReceived = new String(msg.getBody(), StandardCharsets.UTF_8);
-            ReaderViewAMQP readerViewAMQP = objectMapper.readValue(jsonReceived, ReaderViewAMQP.class);
+            ReaderViewAMQP readerViewAMQP = amqpJsonCodec.decode(msg, ReaderViewAMQP.class);
 
             System.out.println(" [x] Received Reader Updated by AMQP: " + msg + ".");
             try {
@@ -52,6 +49,7 @@ public class ReaderEventRabbitmqReceiver {
             } catch (Exception e) {
                 System.out.println(" [x] Reader does not exists or wrong version. Nothing stored.");
             }
+            readerNumberCache.invalidate(readerViewAMQP.getUsername());
         }
         catch(Exception ex) {
             System.out.println(" [x] Exception receiving reader event from AMQP: '" + ex.getMessage() + "'");
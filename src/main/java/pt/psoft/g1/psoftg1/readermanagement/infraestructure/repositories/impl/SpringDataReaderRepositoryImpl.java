@@ -20,7 +20,8 @@ import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 //
 //import java.time.LocalDate;
 //import java.util.ArrayList;
-//import java.util.List;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -31,18 +32,36 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, CrudRe
             "WHERE r.readerNumber.readerNumber = :readerNumber")
     Optional<ReaderDetails> findByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
 
+    @Override
+    @Query("SELECT r " +
+            "FROM ReaderDetails r " +
+            "WHERE r.readerNumber.readerNumber IN :readerNumbers")
+    List<ReaderDetails> findByReaderNumbers(@Param("readerNumbers") Collection<String> readerNumbers);
+
     @Override
     @Query("SELECT r " +
             "FROM ReaderDetails r " +
             "WHERE r.username = :username")
     Optional<ReaderDetails> findByUsername(@Param("username") @NotNull String username);
 
+    @Override
+    @Query("SELECT r.readerNumber.readerNumber " +
+            "FROM ReaderDetails r " +
+            "WHERE r.username = :username")
+    Optional<String> findReaderNumberByUsername(@Param("username") @NotNull String username);
+
     @Override
     @Query("SELECT r " +
             "FROM ReaderDetails r " +
             "WHERE r.userId = :userId")
     Optional<ReaderDetails> findByUserId(@Param("userId") @NotNull Long userId);
 
+    @Override
+    @Query("SELECT MAX(CAST(SUBSTRING(r.readerNumber.readerNumber, 6) AS integer)) " +
+            "FROM ReaderDetails r " +
+            "WHERE r.readerNumber.readerNumber LIKE :yearPrefix")
+    Integer getMaxSequenceFromYear(@Param("yearPrefix") String yearPrefix);
+
 //
 //    @Override
 //    @Query("SELECT COUNT (rd) " +
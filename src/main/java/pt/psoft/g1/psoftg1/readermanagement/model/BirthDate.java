@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.security.access.AccessDeniedException;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 
 import java.time.LocalDate;
 
@@ -20,9 +21,6 @@ public class BirthDate {
     @Temporal(TemporalType.DATE)
     LocalDate birthDate;
 
-    @Transient
-    private final String dateFormatRegexPattern = "\\d{4}-\\d{2}-\\d{2}";
-
     @Transient
     @Value("${minimumReaderAge}")
     private int minimumAge;
@@ -32,15 +30,13 @@ public class BirthDate {
     }
 
     public BirthDate(String birthDate) {
-        if(!birthDate.matches(dateFormatRegexPattern)) {
+        if(!StringUtilsCustom.isIsoDate(birthDate)) {
             throw new IllegalArgumentException("Provided birth date is not in a valid format. Use yyyy-MM-dd");
         }
 
-        String[] dateParts = birthDate.split("-");
-
-        int year = Integer.parseInt(dateParts[0]);
-        int month = Integer.parseInt(dateParts[1]);
-        int day = Integer.parseInt(dateParts[2]);
+        int year = Integer.parseInt(birthDate, 0, 4, 10);
+        int month = Integer.parseInt(birthDate, 5, 7, 10);
+        int day = Integer.parseInt(birthDate, 8, 10, 10);
 
         setBirthDate(year, month, day);
     }
@@ -2,13 +2,19 @@ package pt.psoft.g1.psoftg1.readermanagement.model;
 
 import jakarta.persistence.Embeddable;
 import jakarta.validation.constraints.Email;
-import lombok.AllArgsConstructor;
+import pt.psoft.g1.psoftg1.shared.model.StringUtilsCustom;
 
 @Embeddable
-@AllArgsConstructor
 public class EmailAddress {
     @Email
     String address;
 
+    public EmailAddress(String address) {
+        if(address == null || !StringUtilsCustom.isEmailAddress(address)) {
+            throw new IllegalArgumentException("Email address is not valid: " + address);
+        }
+        this.address = address;
+    }
+
     protected EmailAddress() {}
 }
@@ -12,7 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "READER_DETAILS")
+@Table(name = "READER_DETAILS", indexes = @Index(name = "idx_reader_number", columnList = "READER_NUMBER"))
 public class ReaderDetails extends EntityWithPhoto {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -6,13 +6,18 @@ import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReaderRepository extends CrudRepository<ReaderDetails, Long> {
     Optional<ReaderDetails> findByReaderNumber(String readerNumber);
+    List<ReaderDetails> findByReaderNumbers(Collection<String> readerNumbers);
     Optional<ReaderDetails> findByUsername(String username);
+    /** Just the reader number, without loading the reader, its photo or its interests. */
+    Optional<String> findReaderNumberByUsername(String username);
+    Integer getMaxSequenceFromYear(String yearPrefix);
     
     // Custom search method implemented in SpringDataReaderRepositoryImpl or via naming convention
     List<ReaderDetails> searchReaders(Page page, SearchReadersQuery query);
@@ -0,0 +1,44 @@
+package pt.psoft.g1.psoftg1.readermanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderNumber;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.SequenceBlockLeaser;
+import pt.psoft.g1.psoftg1.shared.services.YearlySequenceAllocator;
+
+/**
+ * Allocates the sequential component of new {@link ReaderNumber}s, per year.
+ * <p>
+ * Replaces {@code readerRepository.count() + 1}, which counted the whole table on every creation and
+ * produced duplicates when readers were created concurrently.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class ReaderNumberAllocator {
+    static final String SEQUENCE_NAME = "READER";
+
+    private final YearlySequenceAllocator allocator;
+
+    public ReaderNumberAllocator(SequenceBlockLeaser leaser,
+                                 ReaderRepository readerRepository,
+                                 @Value("${readerNumberBlockSize:50}") int blockSize,
+                                 @Value("${sequenceNodeIndex:0}") int nodeIndex,
+                                 @Value("${sequenceNodeCount:1}") int nodeCount) {
+        this.allocator = new YearlySequenceAllocator(SEQUENCE_NAME, blockSize, nodeIndex, nodeCount, leaser,
+                year -> {
+                    Integer max = readerRepository.getMaxSequenceFromYear(year + "/%");
+                    return max == null ? 0 : max;
+                });
+    }
+
+    public ReaderNumber next(int year) {
+        return new ReaderNumber(year, Math.toIntExact(allocator.next(year)));
+    }
+
+    /** Keeps {@code number} of {@code year}, given to a reader created elsewhere, from being handed out here. */
+    public void advancePast(int year, int number) {
+        allocator.advancePast(year, number);
+    }
+}
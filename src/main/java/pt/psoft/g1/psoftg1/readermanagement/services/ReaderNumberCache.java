@@ -0,0 +1,115 @@
+package pt.psoft.g1.psoftg1.readermanagement.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Reader number of each username, kept in memory for the ownership checks of the lending endpoints.
+ * <p>
+ * Holds at most {@code reader-number-cache.max-size} entries, evicting the least recently used, and each
+ * entry expires {@code reader-number-cache.ttl-seconds} after it was loaded. Reader events invalidate the
+ * username they are about. Unknown usernames are never cached, so a reader created on another instance is
+ * found as soon as it exists here.
+ */
+@Component
+public class ReaderNumberCache {
+    static final String CACHE_NAME = "readerNumbers";
+
+    private record Entry(String readerNumber, long expiresAt) {
+    }
+
+    private final ReaderRepository readerRepository;
+    private final LongSupplier nanoClock;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    // bumped on every invalidation, so a load that raced with one isn't cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public ReaderNumberCache(ReaderRepository readerRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${reader-number-cache.max-size:10000}") int maxSize,
+                             @Value("${reader-number-cache.ttl-seconds:300}") long ttlSeconds) {
+        this(readerRepository, meterRegistry, maxSize, Duration.ofSeconds(ttlSeconds), System::nanoTime);
+    }
+
+    ReaderNumberCache(ReaderRepository readerRepository, MeterRegistry meterRegistry, int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.readerRepository = readerRepository;
+        this.nanoClock = nanoClock;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+
+        // same names and tags as the cache metrics Spring Boot binds for its own caches
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Reader number lookups answered from memory").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("Reader number lookups that went to the database").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME)
+                .description("Reader numbers evicted to stay within the size bound").register(meterRegistry);
+        Gauge.builder("cache.size", this, ReaderNumberCache::size).tag("cache", CACHE_NAME)
+                .description("Reader numbers in memory").register(meterRegistry);
+    }
+
+    public Optional<String> findReaderNumber(String username) {
+        final long now = nanoClock.getAsLong();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(username);
+            if (entry != null && now - entry.expiresAt() >= 0) {
+                entries.remove(username);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(entry.readerNumber());
+        }
+
+        misses.increment();
+        final long generation = invalidations.get();
+        final Optional<String> readerNumber = readerRepository.findReaderNumberByUsername(username);
+        readerNumber.ifPresent(number -> {
+            synchronized (entries) {
+                if (invalidations.get() == generation)
+                    entries.put(username, new Entry(number, now + ttlNanos));
+            }
+        });
+        return readerNumber;
+    }
+
+    public void invalidate(String username) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(username);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -14,6 +14,8 @@ import pt.psoft.g1.psoftg1.shared.services.Page;
 public interface ReaderService {
  //   ReaderDetails create(CreateReaderRequest request, String photoURI);
 //    ReaderDetails update(Long id, UpdateReaderRequest request, long desireVersion, String photoURI);
+    ReaderDetails create(CreateReaderRequest request);
+    /** Stores a reader created by the reader service, keeping the reader number it was given there. */
     ReaderDetails create(ReaderViewAMQP readerViewAMQP);
     ReaderDetails update(ReaderViewAMQP readerViewAMQP);
     Optional<ReaderDetails> findByUsername(final String username);
@@ -2,6 +2,7 @@ package pt.psoft.g1.psoftg1.readermanagement.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.readermanagement.api.ReaderViewAMQP;
@@ -9,6 +10,7 @@ import pt.psoft.g1.psoftg1.readermanagement.model.*;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +20,7 @@ import java.util.Optional;
 public class ReaderServiceImpl implements ReaderService {
     private final ReaderRepository readerRepository;
     private final ReaderMapper readerMapper;
+    private final ReaderNumberAllocator readerNumberAllocator;
 
     @Override
     public ReaderDetails create(CreateReaderRequest request) {
@@ -31,7 +34,7 @@ public class ReaderServiceImpl implements ReaderService {
         boolean thirdParty = Boolean.TRUE.equals(request.getThirdPartySharingConsent());
 
         ReaderDetails reader = new ReaderDetails(
-                new ReaderNumber(readerRepository.count() + 1), // Check if count() returns long
+                readerNumberAllocator.next(LocalDate.now().getYear()),
                 new BirthDate(request.getBirthDate()),
                 new PhoneNumber(request.getPhoneNumber()),
                 request.getUsername(),
@@ -46,6 +49,38 @@ public class ReaderServiceImpl implements ReaderService {
         return readerRepository.save(reader);
     }
 
+    @Override
+    @Transactional
+    public ReaderDetails create(ReaderViewAMQP view) {
+        if (readerRepository.findByUsername(view.getUsername()).isPresent()) {
+            throw new ConflictException("Username already exists");
+        }
+        if (readerRepository.findByReaderNumber(view.getReaderNumber()).isPresent()) {
+            throw new ConflictException("Reader number already exists");
+        }
+
+        // Need to parse year and number from readerNumber "YYYY/NUMBER"
+        String[] parts = view.getReaderNumber().split("/");
+        int year = Integer.parseInt(parts[0]);
+        int number = Integer.parseInt(parts[1]);
+        readerNumberAllocator.advancePast(year, number);
+
+        ReaderDetails reader = new ReaderDetails(
+                new ReaderNumber(year, number),
+                new BirthDate(view.getBirthDate()),
+                new PhoneNumber(view.getPhoneNumber()),
+                view.getUsername(),
+                view.getFullName(),
+                view.isGdpr(),
+                view.isMarketing(),
+                view.isThirdParty(),
+                view.getPhotoURI(),
+                Collections.emptyList()
+        );
+
+        return readerRepository.save(reader);
+    }
+
     @Override
     public Optional<ReaderDetails> findByReaderNumber(String readerNumber) {
         return readerRepository.findByReaderNumber(readerNumber);
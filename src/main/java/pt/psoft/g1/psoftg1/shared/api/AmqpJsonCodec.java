@@ -0,0 +1,76 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.BookViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
+import pt.psoft.g1.psoftg1.readermanagement.api.ReaderViewAMQP;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JSON codec shared by every AMQP consumer and publisher.
+ * <p>
+ * {@link ObjectReader}/{@link ObjectWriter} are immutable and thread-safe, so one instance per type is
+ * built once (from the application {@link ObjectMapper}, which knows about {@code java.time}) and reused
+ * for every message. Bodies are read from and written to {@code byte[]} directly, without going through
+ * an intermediate {@code String}.
+ */
+@Component
+public class AmqpJsonCodec implements MessageConverter {
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public AmqpJsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        for (Class<?> type : new Class<?>[]{LendingViewAMQP.class, ReaderViewAMQP.class, BookViewAMQP.class}) {
+            readers.put(type, objectMapper.readerFor(type));
+            writers.put(type, objectMapper.writerFor(type));
+        }
+    }
+
+    public <T> T decode(Message message, Class<T> type) throws IOException {
+        return decode(message.getBody(), type);
+    }
+
+    public <T> T decode(byte[] body, Class<T> type) throws IOException {
+        return readers.computeIfAbsent(type, objectMapper::readerFor).readValue(body);
+    }
+
+    public byte[] encode(Object value) throws JsonProcessingException {
+        return writers.computeIfAbsent(value.getClass(), objectMapper::writerFor).writeValueAsBytes(value);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        try {
+            final byte[] body = encode(object);
+            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            messageProperties.setContentEncoding("UTF-8");
+            messageProperties.setContentLength(body.length);
+            return new Message(body, messageProperties);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("Failed to convert " + object.getClass().getSimpleName() + " to JSON", e);
+        }
+    }
+
+    /** Without a target type the body can only be read as a JSON tree; prefer {@link #decode(Message, Class)}. */
+    @Override
+    public Object fromMessage(Message message) {
+        try {
+            return objectMapper.readTree(message.getBody());
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to read message body as JSON", e);
+        }
+    }
+}
@@ -22,6 +22,7 @@ package pt.psoft.g1.psoftg1.shared.api;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -32,4 +33,14 @@ import lombok.Data;
 @AllArgsConstructor
 public class ListResponse<T> {
 	private List<T> items;
+
+	/**
+	 * Cursor of the next page, when there may be one; send it back as {@code page.cursor}.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String next;
+
+	public ListResponse(final List<T> items) {
+		this(items, null);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+import pt.psoft.g1.psoftg1.shared.repositories.YearlySequenceRepository;
+
+import java.util.Optional;
+
+public interface SpringDataYearlySequenceRepository extends YearlySequenceRepository, CrudRepository<YearlySequence, Long> {
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s " +
+            "FROM YearlySequence s " +
+            "WHERE s.sequenceName = :sequenceName AND s.year = :year")
+    Optional<YearlySequence> findForUpdate(@Param("sequenceName") String sequenceName, @Param("year") int year);
+}
@@ -0,0 +1,31 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Base of entities whose id is assigned by the application instead of generated by the database.
+ * <p>
+ * Spring Data can't tell from such an id whether the entity is new, and would merge it (a select, then an
+ * update of whatever row has the same key) instead of inserting it. Here an entity is new until it is
+ * persisted or loaded, so saving a new one with a taken key fails on the unique key as it should.
+ */
+@MappedSuperclass
+public abstract class EntityWithAssignedId<ID> implements Persistable<ID> {
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
@@ -6,4 +6,6 @@ public interface LendingEvents {
     static final String LENDING_DELETED = "LENDING_DELETED";
     static final String LENDING_UPDATED_WITH_RECOMMENDATION = "LENDING_UPDATED_WITH_RECOMMENDATION";
     static final String LENDING_RECOMMENDATION_FAILED = "LENDING_RECOMMENDATION_FAILED";
+    static final String LENDINGS_DUE_SOON = "LENDINGS_DUE_SOON";
+    static final String LENDINGS_OVERDUE = "LENDINGS_OVERDUE";
 }
\ No newline at end of file
@@ -3,7 +3,6 @@ import org.owasp.html.PolicyFactory;
 import org.owasp.html.Sanitizers;
 import org.springframework.util.StringUtils;
 
-import java.util.regex.Pattern;
 
 public class StringUtilsCustom {
     /**
@@ -12,18 +11,77 @@ public class StringUtilsCustom {
     private static final PolicyFactory sanitizer = Sanitizers.FORMATTING.and(Sanitizers.LINKS);
 
     /**
-     * Returns {@code true} if every character is a letter (capitalized or not), or a number, or a white space.
-     * <p>In this pattern:
+     * Returns {@code true} if every character is a letter (capitalized or not), or a number, or a white space,
+     * or an apostrophe or hyphen; the same strings as the pattern {@code ^[\\p{L}0-9\\s'-]*$}, where
      *
      *     <p>- '{@code \\p{L}}' matches any Unicode letter, including letters with diacritics (accents) in various languages.
      *     <p>- '{@code 0-9}' matches any digit from 0 to 9.
      *     <p>- '{@code \\s}' matches any whitespace character.
-     * <p>Adapted from <a href="https://www.baeldung.com/java-check-string-contains-only-letters-numbers">baeldung.com</a>
+     * <p>Written as a scan over the code points rather than a regex, as it runs for every name of every
+     * reader event and neither compiles a pattern nor allocates.
      * @param str string to be compared
      */
     public static boolean isAlphanumeric(String str){
-        String pattern = "^[\\p{L}0-9\\s'-]*$";
-        return Pattern.matches(pattern, str);
+        for (int i = 0; i < str.length(); ) {
+            final int c = str.codePointAt(i);
+            if (!Character.isLetter(c) && !isAsciiDigit(c) && !isRegexWhitespace(c) && c != '\'' && c != '-')
+                return false;
+            i += Character.charCount(c);
+        }
+        return true;
+    }
+
+    /** Whether {@code str} is {@code yyyy-MM-dd} in ASCII digits, i.e. matches {@code \\d{4}-\\d{2}-\\d{2}}. */
+    public static boolean isIsoDate(String str) {
+        return str.length() == 10
+                && isDigits(str, 0, 4) && str.charAt(4) == '-'
+                && isDigits(str, 5, 7) && str.charAt(7) == '-'
+                && isDigits(str, 8, 10);
+    }
+
+    /** Whether the characters of {@code str} from {@code begin} (inclusive) to {@code end} (exclusive) are all 0-9. */
+    public static boolean isDigits(CharSequence str, int begin, int end) {
+        if (begin >= end)
+            return false;
+        for (int i = begin; i < end; i++) {
+            if (!isAsciiDigit(str.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * A pragmatic e-mail address check: one {@code @}, a non-empty local part, and a domain of non-empty
+     * dot-separated labels, with no white space anywhere.
+     */
+    public static boolean isEmailAddress(String str) {
+        final int at = str.indexOf('@');
+        if (at <= 0 || at != str.lastIndexOf('@') || at == str.length() - 1)
+            return false;
+        boolean labelStart = true;
+        for (int i = 0; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            if (Character.isWhitespace(c))
+                return false;
+            if (i > at) {
+                if (c == '.') {
+                    if (labelStart) return false;
+                    labelStart = true;
+                } else {
+                    labelStart = false;
+                }
+            }
+        }
+        return !labelStart;
+    }
+
+    private static boolean isAsciiDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // \s without UNICODE_CHARACTER_CLASS: [ \t\n\x0B\f\r]
+    private static boolean isRegexWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
     }
 
     public static boolean startsOrEndsInWhiteSpace(String str) {
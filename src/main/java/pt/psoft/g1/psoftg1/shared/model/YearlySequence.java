@@ -0,0 +1,76 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persistent high-water mark of a per-year sequence (e.g. lending numbers of 2024).
+ * <p>
+ * Nodes never hand out values straight from this row: they lease a block of values by moving the
+ * {@code highWaterMark} forward and then serve the block from memory.
+ */
+@Entity
+@NoArgsConstructor
+@Table(name = "YEARLY_SEQUENCE",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"SEQUENCE_NAME", "SEQUENCE_YEAR"}))
+public class YearlySequence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long pk;
+
+    @Getter
+    @Column(name = "SEQUENCE_NAME", nullable = false, length = 32)
+    private String sequenceName;
+
+    @Getter
+    @Column(name = "SEQUENCE_YEAR", nullable = false)
+    private int year;
+
+    @Getter
+    @Column(nullable = false)
+    private long highWaterMark;
+
+    public YearlySequence(String sequenceName, int year, long highWaterMark) {
+        if (highWaterMark < 0)
+            throw new IllegalArgumentException("High-water mark cannot be negative");
+        this.sequenceName = sequenceName;
+        this.year = year;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Reserves the next block of {@code blockSize} values that belongs to node {@code nodeIndex}.
+     * <p>
+     * A single node leases the {@code blockSize} values right after the high-water mark. Several nodes cut
+     * the sequence into blocks {@code (k * blockSize, (k + 1) * blockSize]}, block {@code k} belonging to
+     * node {@code k % nodeCount}, so nodes that each keep their own row never lease the same value; the
+     * blocks of the other nodes that are skipped over are simply never used here.
+     * @return the last value of the reserved block
+     */
+    public long lease(int blockSize, int nodeIndex, int nodeCount) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive");
+        if (nodeCount < 1 || nodeIndex < 0 || nodeIndex >= nodeCount)
+            throw new IllegalArgumentException("Node index must be between 0 and the node count");
+        if (nodeCount == 1) {
+            this.highWaterMark += blockSize;
+            return this.highWaterMark;
+        }
+        // first block that starts at or above the high-water mark, then the first of those that is ours
+        long block = Math.ceilDiv(this.highWaterMark, blockSize);
+        block += Math.floorMod(nodeIndex - block, (long) nodeCount);
+        this.highWaterMark = (block + 1) * blockSize;
+        return this.highWaterMark;
+    }
+
+    /**
+     * Moves the high-water mark up to {@code value} if it is behind it, so a value handed out elsewhere
+     * (e.g. replicated from another node) is never leased here again.
+     */
+    public void advanceTo(long value) {
+        if (value > this.highWaterMark)
+            this.highWaterMark = value;
+    }
+}
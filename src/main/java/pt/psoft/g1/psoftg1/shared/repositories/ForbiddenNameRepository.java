@@ -7,9 +7,12 @@ import java.util.Optional;
 
 public interface ForbiddenNameRepository {
     Iterable<ForbiddenName> findAll();
-    List<ForbiddenName> findByForbiddenNameIsContained(String pat);
     ForbiddenName save(ForbiddenName forbiddenName);
 
+    <S extends ForbiddenName> Iterable<S> saveAll(Iterable<S> forbiddenNames);
+
+    List<String> findAllNames();
+
     Optional<ForbiddenName> findByForbiddenName(String forbiddenName);
 
     int deleteForbiddenName(String forbiddenName);
@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.shared.repositories;
+
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+
+import java.util.Optional;
+
+public interface YearlySequenceRepository {
+    /**
+     * Loads the sequence row holding a write lock until the end of the current transaction, so that
+     * concurrent leases (from this or any other node sharing the datasource) are serialized.
+     */
+    Optional<YearlySequence> findForUpdate(String sequenceName, int year);
+
+    YearlySequence save(YearlySequence yearlySequence);
+}
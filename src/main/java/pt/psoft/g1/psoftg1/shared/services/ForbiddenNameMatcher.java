@@ -0,0 +1,143 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.*;
+
+/**
+ * Finds which forbidden names occur in a text, checking all of them in a single pass over the text
+ * (Aho-Corasick), whatever the number of forbidden names.
+ * <p>
+ * Matching is case-sensitive substring search, as the {@code LIKE '%name%'} query it replaces. Instances
+ * are immutable, so a new one is built whenever the names change and swapped in whole.
+ */
+public final class ForbiddenNameMatcher {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final String[] patterns;
+    /** Per state, the sorted characters it has a transition on, and the state each one leads to. */
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    /** Per state, the pattern that ends exactly there, or {@link #NONE}. */
+    private final int[] output;
+    /** Per state, the nearest state down its fail chain that has an output, or {@link #NONE}. */
+    private final int[] outputLink;
+
+    private ForbiddenNameMatcher(String[] patterns, char[][] labels, int[][] targets, int[] fail, int[] output, int[] outputLink) {
+        this.patterns = patterns;
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+    }
+
+    /** Blank and repeated names are ignored. */
+    public static ForbiddenNameMatcher of(Collection<String> names) {
+        final List<String> patterns = new ArrayList<>();
+        final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        final List<Integer> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(NONE);
+
+        for (String name : new LinkedHashSet<>(names)) {
+            if (name == null || name.isBlank()) continue;
+            int state = ROOT;
+            for (int i = 0; i < name.length(); i++) {
+                final Integer next = trie.get(state).get(name.charAt(i));
+                if (next != null) {
+                    state = next;
+                } else {
+                    trie.add(new TreeMap<>());
+                    outputs.add(NONE);
+                    trie.get(state).put(name.charAt(i), trie.size() - 1);
+                    state = trie.size() - 1;
+                }
+            }
+            outputs.set(state, patterns.size());
+            patterns.add(name);
+        }
+
+        final int states = trie.size();
+        final char[][] labels = new char[states][];
+        final int[][] targets = new int[states][];
+        final int[] output = new int[states];
+        for (int s = 0; s < states; s++) {
+            final TreeMap<Character, Integer> edges = trie.get(s);
+            labels[s] = new char[edges.size()];
+            targets[s] = new int[edges.size()];
+            int e = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                labels[s][e] = edge.getKey();
+                targets[s][e++] = edge.getValue();
+            }
+            output[s] = outputs.get(s);
+        }
+
+        // fail links, breadth first so a state's fail target is always resolved before the state itself
+        final int[] fail = new int[states];
+        final int[] outputLink = new int[states];
+        outputLink[ROOT] = NONE;
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            outputLink[child] = NONE;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+            for (int e = 0; e < labels[state].length; e++) {
+                final char c = labels[state][e];
+                final int child = targets[state][e];
+                int f = fail[state];
+                while (f != ROOT && step(labels, targets, f, c) == NONE)
+                    f = fail[f];
+                final int next = step(labels, targets, f, c);
+                fail[child] = next == NONE ? ROOT : next;
+                outputLink[child] = output[fail[child]] != NONE ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+
+        return new ForbiddenNameMatcher(patterns.toArray(new String[0]), labels, targets, fail, output, outputLink);
+    }
+
+    private static int step(char[][] labels, int[][] targets, int state, char c) {
+        final int e = Arrays.binarySearch(labels[state], c);
+        return e < 0 ? NONE : targets[state][e];
+    }
+
+    private int next(int state, char c) {
+        int next;
+        while ((next = step(labels, targets, state, c)) == NONE && state != ROOT)
+            state = fail[state];
+        return next == NONE ? ROOT : next;
+    }
+
+    /** Whether any forbidden name occurs in {@code text}; stops at the first one found. */
+    public boolean containsAny(String text) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (output[state] != NONE || outputLink[state] != NONE)
+                return true;
+        }
+        return false;
+    }
+
+    /** The forbidden names that occur in {@code text}, in the order they first end in it. */
+    public List<String> findContainedIn(String text) {
+        final Set<String> found = new LinkedHashSet<>();
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            for (int s = output[state] != NONE ? state : outputLink[state]; s != NONE; s = outputLink[s])
+                found.add(patterns[output[s]]);
+        }
+        return new ArrayList<>(found);
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+}
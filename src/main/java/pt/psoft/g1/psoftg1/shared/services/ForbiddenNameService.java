@@ -1,5 +1,13 @@
 package pt.psoft.g1.psoftg1.shared.services;
 
+import java.util.List;
+
 public interface ForbiddenNameService {
     void loadDataFromFile(String filePath);
-}
\ No newline at end of file
+
+    /** The forbidden names {@code name} contains, if any; checked in memory, without querying the database. */
+    List<String> findContainedIn(String name);
+
+    /** Rebuilds the in-memory matcher from the forbidden names currently stored. */
+    void reload();
+}
@@ -3,33 +3,70 @@ package pt.psoft.g1.psoftg1.shared.services;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.shared.model.ForbiddenName;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ForbiddenNameServiceImpl implements ForbiddenNameService {
     private final ForbiddenNameRepository repo;
 
+    // replaced whole on every reload, so checks never see a half-built matcher
+    private volatile ForbiddenNameMatcher matcher;
+
+    /**
+     * Imports the names of a classpath file, one per line, that aren't stored yet: the file is read once,
+     * repeated and blank lines dropped, the stored names fetched in one query, and the missing ones saved
+     * together so they go out as JDBC batches.
+     */
+    @Override
+    @Transactional
     public void loadDataFromFile(String fileName) {
         try {
             ClassPathResource resource = new ClassPathResource(fileName);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    final var fn = repo.findByForbiddenName(line);
-                    if (fn.isEmpty()) {
-                        ForbiddenName entity = new ForbiddenName(line);
-                        repo.save(entity);
-                    }
-                }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+                importNames(reader.lines());
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        reload();
+    }
+
+    /** @return how many names were inserted */
+    int importNames(Stream<String> lines) {
+        final Set<String> missing = new LinkedHashSet<>();
+        lines.filter(line -> !line.isBlank()).forEach(missing::add);
+        missing.removeAll(new HashSet<>(repo.findAllNames()));
+
+        final List<ForbiddenName> entities = new ArrayList<>(missing.size());
+        for (String name : missing)
+            entities.add(new ForbiddenName(name));
+        repo.saveAll(entities);
+        return entities.size();
+    }
+
+    @Override
+    public List<String> findContainedIn(String name) {
+        ForbiddenNameMatcher current = matcher;
+        if (current == null) {
+            reload();
+            current = matcher;
+        }
+        return current.findContainedIn(name);
+    }
+
+    /** Only on demand: nothing checks names on a hot path here, so there is no point refreshing on a timer. */
+    @Override
+    public void reload() {
+        matcher = ForbiddenNameMatcher.of(repo.findAllNames());
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Timers that fire when a tick counter reaches their deadline, with constant-time schedule and cancel.
+ * <p>
+ * The first level has one slot per tick for the next {@value #SLOTS} ticks; the second level has one slot
+ * per {@value #SLOTS} ticks for the next {@value #SLOTS}&sup2;. A second-level slot is moved down to the
+ * first level when the wheel reaches its range, and timers further out than that wait in an overflow set
+ * that is rechecked once per second-level turn. Advancing one tick only looks at the timers due then.
+ * <p>
+ * Not thread-safe.
+ */
+public class HierarchicalTimingWheel<T> {
+    private static final int SHIFT = 6;
+    private static final int SLOTS = 1 << SHIFT;
+    private static final int MASK = SLOTS - 1;
+
+    private final List<Set<Timer<T>>> near = slots();
+    private final List<Set<Timer<T>>> far = slots();
+    private final Set<Timer<T>> overflow = new LinkedHashSet<>();
+    private long now;
+    private int size;
+
+    public HierarchicalTimingWheel(long now) {
+        this.now = now;
+    }
+
+    public long now() {
+        return now;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** @param deadline the tick the timer fires on; must be after {@link #now()} */
+    public Timer<T> schedule(long deadline, T payload) {
+        if (deadline <= now)
+            throw new IllegalArgumentException("Deadline " + deadline + " is not after " + now);
+        final Timer<T> timer = new Timer<>(deadline, payload);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /** Does nothing if the timer already fired or was cancelled. */
+    public void cancel(Timer<T> timer) {
+        if (timer.bucket != null && timer.bucket.remove(timer)) {
+            timer.bucket = null;
+            size--;
+        }
+    }
+
+    /** Moves the wheel to {@code tick}; returns the payloads of the timers that fired, in deadline order. */
+    public List<T> advanceTo(long tick) {
+        final List<T> fired = new ArrayList<>();
+        while (now < tick) {
+            now++;
+            if ((now & MASK) == 0)
+                cascade();
+            final Set<Timer<T>> due = near.get((int) (now & MASK));
+            for (Timer<T> timer : due) {
+                timer.bucket = null;
+                fired.add(timer.payload);
+            }
+            size -= due.size();
+            due.clear();
+        }
+        return fired;
+    }
+
+    /** Moves the second-level slot that starts at {@link #now} down, and the overflow in range, once per turn. */
+    private void cascade() {
+        final List<Timer<T>> moving = new ArrayList<>(far.get((int) ((now >> SHIFT) & MASK)));
+        far.get((int) ((now >> SHIFT) & MASK)).clear();
+        if (((now >> SHIFT) & MASK) == 0) {
+            moving.addAll(overflow);
+            overflow.clear();
+        }
+        for (Timer<T> timer : moving)
+            place(timer);
+    }
+
+    private void place(Timer<T> timer) {
+        if (timer.deadline - now < SLOTS)
+            timer.bucket = near.get((int) (timer.deadline & MASK));
+        else if ((timer.deadline >> SHIFT) - (now >> SHIFT) < SLOTS)
+            timer.bucket = far.get((int) ((timer.deadline >> SHIFT) & MASK));
+        else
+            timer.bucket = overflow;
+        timer.bucket.add(timer);
+    }
+
+    private static <T> List<Set<Timer<T>>> slots() {
+        final List<Set<Timer<T>>> slots = new ArrayList<>(SLOTS);
+        for (int i = 0; i < SLOTS; i++)
+            slots.add(new LinkedHashSet<>());
+        return slots;
+    }
+
+    public static final class Timer<T> {
+        private final long deadline;
+        private final T payload;
+        private Set<Timer<T>> bucket;
+
+        private Timer(long deadline, T payload) {
+            this.deadline = deadline;
+            this.payload = payload;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        public T payload() {
+            return payload;
+        }
+    }
+}
@@ -19,6 +19,16 @@ public class Page {
     @Max(value = 100, message = "You can request maximum 100 records")
     int limit;
 
+    /**
+     * When set, the page continues right after the page that returned this cursor (keyset paging) and
+     * {@code number} is ignored. See {@link PageCursor}.
+     */
+    String cursor;
+
+    public Page(int number, int limit) {
+        this(number, limit, null);
+    }
+
     public Page() {
         this(1, 10);
     }
@@ -0,0 +1,40 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last item of a page, for keyset (seek) pagination: the next page starts right after
+ * {@code (sortKey, pk)} instead of skipping an offset, so every page costs the same as the first one.
+ * <p>
+ * Clients only see it as an opaque token (see {@link #encode()}).
+ */
+public record PageCursor(String sortKey, long pk) {
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sortKey + SEPARATOR + pk).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+
+    /** The sort key of a cursor over a date column; a token that was tampered with is rejected like any other. */
+    public LocalDate dateSortKey() {
+        try {
+            return LocalDate.parse(sortKey);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+import pt.psoft.g1.psoftg1.shared.repositories.YearlySequenceRepository;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Moves the persistent high-water mark of a {@link YearlySequence} forward, in its own transaction.
+ * <p>
+ * The lease commits independently of the caller, so a rolled back business transaction never hands the
+ * same block out twice; at worst the unused values of a block are skipped.
+ */
+@Service
+@RequiredArgsConstructor
+public class SequenceBlockLeaser {
+    private final YearlySequenceRepository repo;
+
+    /**
+     * @param nodeIndex this node's share of the sequence, see {@link YearlySequence#lease(int, int, int)}
+     * @param seed returns the highest value already in use for the year; only called the first time the
+     *             sequence of that year is leased
+     * @return the last value of the leased block, i.e. the block is {@code (result - blockSize, result]}
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long leaseBlock(String sequenceName, int year, int blockSize, int nodeIndex, int nodeCount, LongSupplier seed) {
+        final var sequence = repo.findForUpdate(sequenceName, year)
+                .orElseGet(() -> new YearlySequence(sequenceName, year, seed.getAsLong()));
+        final long end = sequence.lease(blockSize, nodeIndex, nodeCount);
+        repo.save(sequence);
+        return end;
+    }
+
+    /**
+     * Makes sure no block leased from now on contains {@code value}.
+     * @param seed as in {@link #leaseBlock}
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void advanceTo(String sequenceName, int year, long value, LongSupplier seed) {
+        final var sequence = repo.findForUpdate(sequenceName, year)
+                .orElseGet(() -> new YearlySequence(sequenceName, year, seed.getAsLong()));
+        sequence.advanceTo(value);
+        repo.save(sequence);
+    }
+}
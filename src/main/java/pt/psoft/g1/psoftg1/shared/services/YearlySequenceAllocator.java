@@ -0,0 +1,134 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Hands out unique, increasing values of a per-year sequence without touching the database on the hot path.
+ * <p>
+ * Values are served from an in-memory block; only when a block runs out is a new one leased through
+ * {@link SequenceBlockLeaser}. Nodes with their own database (and so their own sequence table) are kept
+ * apart by giving each a {@code nodeIndex} out of {@code nodeCount}: a node only ever leases the blocks of
+ * its index, so its values cannot collide with another node's even before they are replicated. Nodes that
+ * share one sequence table may use the same index. Values are not gap-free: the rest of a block is lost
+ * when the node stops, and the blocks of the other nodes are skipped.
+ */
+public class YearlySequenceAllocator {
+    private final String sequenceName;
+    private final int blockSize;
+    private final int nodeIndex;
+    private final int nodeCount;
+    private final SequenceBlockLeaser leaser;
+    private final IntToLongFunction seed;
+
+    private final ConcurrentMap<Integer, Block> blocks = new ConcurrentHashMap<>();
+    // held while a block is leased from the database; a virtual thread waiting on that inside a synchronized
+    // block would pin its carrier thread, so this is a ReentrantLock
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    /**
+     * @param seed given a year, returns the highest value already in use for it (used once per year, when
+     *             the sequence row is first created)
+     */
+    public YearlySequenceAllocator(String sequenceName, int blockSize, SequenceBlockLeaser leaser, IntToLongFunction seed) {
+        this(sequenceName, blockSize, 0, 1, leaser, seed);
+    }
+
+    /**
+     * @param nodeIndex which of the {@code nodeCount} interleaved shares of the sequence this node leases from
+     * @param seed as above
+     */
+    public YearlySequenceAllocator(String sequenceName, int blockSize, int nodeIndex, int nodeCount,
+                                   SequenceBlockLeaser leaser, IntToLongFunction seed) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive");
+        if (nodeCount < 1 || nodeIndex < 0 || nodeIndex >= nodeCount)
+            throw new IllegalArgumentException("Node index must be between 0 and the node count");
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+        this.nodeIndex = nodeIndex;
+        this.nodeCount = nodeCount;
+        this.leaser = leaser;
+        this.seed = seed;
+    }
+
+    public long next(int year) {
+        while (true) {
+            final Block block = blocks.get(year);
+            if (block != null) {
+                final long value = block.cursor.incrementAndGet();
+                if (value <= block.end)
+                    return value;
+            }
+            refill(year, block);
+        }
+    }
+
+    private void refill(int year, Block exhausted) {
+        refillLock.lock();
+        try {
+            // another thread may have refilled while we waited for the lock
+            if (blocks.get(year) != exhausted)
+                return;
+            final long end = lease(year);
+            blocks.put(year, new Block(end - blockSize, end));
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * Records that {@code value} was handed out by someone else, so this allocator never hands it out again.
+     * Values of the other nodes' blocks never are; this only matters for values of this node's own blocks,
+     * e.g. ones taken before the nodes were split or imported with their numbers.
+     */
+    public void advancePast(int year, long value) {
+        if (value < 1 || Math.floorMod((value - 1) / blockSize, nodeCount) != nodeIndex)
+            return;
+        final Block block = blocks.get(year);
+        if (block != null && value <= block.end) {
+            // already leased here, so the sequence row is past it; only the block may still have to skip it
+            block.cursor.accumulateAndGet(value, Math::max);
+            return;
+        }
+        refillLock.lock();
+        try {
+            try {
+                leaser.advanceTo(sequenceName, year, value, () -> seed.applyAsLong(year));
+            } catch (DataIntegrityViolationException e) {
+                // another node created the row of this year first; it exists now, so advance it
+                leaser.advanceTo(sequenceName, year, value, () -> seed.applyAsLong(year));
+            }
+            // a block leased before the row moved may still hold the value
+            final Block current = blocks.get(year);
+            if (current != null && value <= current.end)
+                current.cursor.accumulateAndGet(value, Math::max);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private long lease(int year) {
+        try {
+            return leaser.leaseBlock(sequenceName, year, blockSize, nodeIndex, nodeCount, () -> seed.applyAsLong(year));
+        } catch (DataIntegrityViolationException e) {
+            // another node created the row of this year first; it exists now, so lease from it
+            return leaser.leaseBlock(sequenceName, year, blockSize, nodeIndex, nodeCount, () -> seed.applyAsLong(year));
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong cursor;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
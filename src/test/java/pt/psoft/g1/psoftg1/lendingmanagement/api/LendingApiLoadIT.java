@@ -0,0 +1,155 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+/**
+ * Throughput and p99 of lending create and search under many concurrent clients. Opt-in, and run once per
+ * thread mode to compare them:
+ * <pre>
+ * mvn verify -Dit.test=LendingApiLoadIT -Dload-test.clients=500
+ * mvn verify -Dit.test=LendingApiLoadIT -Dload-test.clients=500 -Dspring.threads.virtual.enabled=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "load-test.clients", matches = "\\d+")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LendingApiLoadIT {
+    // each reader can hold at most three outstanding lendings
+    private static final int CREATES_PER_READER = 3;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Value("${jwt.public.key}")
+    private RSAPublicKey publicKey;
+    @Value("${jwt.private.key}")
+    private RSAPrivateKey privateKey;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final int clients = Integer.getInteger("load-test.clients", 0);
+    private final int requestsPerClient = Integer.getInteger("load-test.requests-per-client", 2 * CREATES_PER_READER);
+
+    private HttpClient http;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        List<ReaderDetails> readers = new ArrayList<>();
+        for (int i = 1; i <= clients; i++)
+            readers.add(reader(i, "load" + i + "@mail.com"));
+        readerRepository.saveAll(readers);
+
+        RSAKey key = new RSAKey.Builder(publicKey).privateKey(privateKey).build();
+        token = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key))).encode(JwtEncoderParameters.from(
+                JwtClaimsSet.builder()
+                        .subject("1,admin@mail.com")
+                        .claim("roles", "ADMIN")
+                        .expiresAt(Instant.now().plusSeconds(3600))
+                        .build())).getTokenValue();
+        http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+    }
+
+    @Test
+    void measureCreateAndSearch() throws Exception {
+        // warm up the JIT, the pool and the caches before measuring
+        run(Math.min(clients, 20), 2, true);
+
+        Result create = run(clients, CREATES_PER_READER, false);
+        Result search = run(clients, requestsPerClient, true);
+
+        System.out.printf("virtual threads=%s clients=%d%n  create: %s%n  search: %s%n",
+                virtualThreads, clients, create, search);
+        assertThat(create.failures).isZero();
+        assertThat(search.failures).isZero();
+    }
+
+    /** Every client sends its requests one after the other; all clients start together. */
+    private Result run(int clientCount, int requests, boolean search) throws Exception {
+        long[] latencies = new long[clientCount * requests];
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < clientCount; c++) {
+                final int client = c;
+                done.add(executor.submit(() -> {
+                    for (int r = 0; r < requests; r++) {
+                        HttpRequest request = search ? searchRequest(client + 1) : createRequest(client + 1);
+                        long sent = System.nanoTime();
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status >= 300) failures.incrementAndGet();
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[client * requests + r] = System.nanoTime() - sent;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) f.get();
+        }
+        return new Result(latencies, System.nanoTime() - start, failures.get());
+    }
+
+    private HttpRequest createRequest(int reader) {
+        return post("/api/lendings", "{\"isbn\":\"9782826012092\",\"readerNumber\":\"2024/" + reader + "\"}");
+    }
+
+    private HttpRequest searchRequest(int reader) {
+        return post("/api/lendings/search",
+                "{\"page\":{\"number\":1,\"limit\":10},\"query\":{\"readerNumber\":\"2024/" + reader + "\"}}");
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private record Result(long[] latencies, long elapsedNanos, int failures) {
+        @Override
+        public String toString() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            long p99 = sorted[Math.max(0, (int) Math.ceil(sorted.length * 0.99) - 1)];
+            return String.format("%.0f req/s, p50 %.1f ms, p99 %.1f ms, %d failures",
+                    sorted.length / (elapsedNanos / 1e9), sorted[sorted.length / 2] / 1e6, p99 / 1e6, failures);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ProcessedLendingEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingInboxRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingInbox;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.shared.api.AmqpJsonCodec;
+import pt.psoft.g1.psoftg1.shared.model.LendingEvents;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the receiver against the real inbox table, each delivery in its own transaction as the listener
+ * container would.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({LendingEventRabbitmqReceiver.class, LendingInbox.class, LendingEventRabbitmqReceiverTest.Codec.class})
+class LendingEventRabbitmqReceiverTest {
+
+    @TestConfiguration
+    static class Codec {
+        @Bean
+        AmqpJsonCodec amqpJsonCodec() {
+            return new AmqpJsonCodec(new ObjectMapper().findAndRegisterModules());
+        }
+    }
+
+    @MockBean
+    private LendingService lendingService;
+    @Autowired
+    private LendingEventRabbitmqReceiver receiver;
+    @Autowired
+    private LendingInbox inbox;
+    @Autowired
+    private LendingInboxRepository inboxRepository;
+    @Autowired
+    private AmqpJsonCodec codec;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status ->
+                inboxRepository.deleteProcessedBefore(Instant.now().plusSeconds(3600)));
+    }
+
+    @Test
+    void ensureEachEventIsAppliedOnceUnderHeavyRedelivery() throws Exception {
+        final int distinct = 500, copies = 10;
+        List<Message> deliveries = new ArrayList<>();
+        for (int i = 1; i <= distinct; i++) {
+            LendingViewAMQP created = new LendingViewAMQP("2024/" + i, "9782826012092", "2024/1", null, null, 0L, false);
+            LendingViewAMQP returned = new LendingViewAMQP("2024/" + i, "9782826012092", "2024/1", LocalDate.now(), "ok", 1L, false);
+            for (int c = 0; c < copies; c++) {
+                deliveries.add(message(created, "created"));
+                deliveries.add(message(returned, "updated"));
+            }
+        }
+        Collections.shuffle(deliveries, new Random(42));
+
+        long start = System.nanoTime();
+        for (Message m : deliveries) {
+            if ("created".equals(m.getMessageProperties().getReceivedRoutingKey())) receiver.receiveLendingCreated(m);
+            else receiver.receiveLendingUpdated(m);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d deliveries, %d%% duplicates: %.0f msg/s%n", deliveries.size(),
+                100 - 100 / copies, deliveries.size() / (elapsed / 1e9));
+
+        verify(lendingService, times(distinct)).create(any(LendingViewAMQP.class));
+        verify(lendingService, times(distinct)).setReturned(any(LendingViewAMQP.class));
+        assertTrue(inboxRepository.existsById("LENDING_CREATED:2024/1:0"));
+        assertTrue(inboxRepository.existsById("LENDING_UPDATED:2024/" + distinct + ":1"));
+    }
+
+    @Test
+    void ensureFailedEventIsNotRecordedAndReachesTheListenerContainer() throws Exception {
+        LendingViewAMQP created = new LendingViewAMQP("2024/7", "9782826012092", "2024/1", null, null, 0L, false);
+        when(lendingService.create(any(LendingViewAMQP.class))).thenThrow(new IllegalStateException("boom"));
+
+        assertThrows(IllegalStateException.class, () -> receiver.receiveLendingCreated(message(created, "created")));
+
+        assertFalse(inboxRepository.existsById(LendingInbox.messageId(LendingEvents.LENDING_CREATED, created)));
+    }
+
+    @Test
+    void ensurePurgeKeepsEntriesWithinRetention() {
+        transactionTemplate.executeWithoutResult(status -> {
+            inboxRepository.save(new ProcessedLendingEvent("LENDING_CREATED:2024/1:0"));
+            inboxRepository.save(new ProcessedLendingEvent("LENDING_CREATED:2024/2:0"));
+            entityManager.flush();
+            entityManager.createQuery("UPDATE ProcessedLendingEvent e SET e.processedAt = :processedAt WHERE e.messageId = :messageId")
+                    .setParameter("processedAt", Instant.now().minusSeconds(8 * 24 * 3600))
+                    .setParameter("messageId", "LENDING_CREATED:2024/2:0")
+                    .executeUpdate();
+        });
+
+        inbox.purge();
+
+        assertTrue(inboxRepository.existsById("LENDING_CREATED:2024/1:0"));
+        assertFalse(inboxRepository.existsById("LENDING_CREATED:2024/2:0"));
+    }
+
+    private Message message(LendingViewAMQP view, String routingKey) throws Exception {
+        MessageProperties properties = new MessageProperties();
+        properties.setReceivedRoutingKey(routingKey);
+        return new Message(codec.encode(view), properties);
+    }
+}
@@ -0,0 +1,111 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.publishers.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingOutboxEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingOutboxRepository;
+import pt.psoft.g1.psoftg1.shared.model.LendingEvents;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LendingOutboxRelayTest {
+    private InMemoryOutbox outbox;
+    private RabbitOperations broker;
+    private List<Message> delivered;
+    private LendingOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new InMemoryOutbox();
+        delivered = new ArrayList<>();
+
+        // stand-in broker: records what is sent inside the confirm scope
+        broker = mock(RabbitOperations.class);
+        doAnswer(inv -> delivered.add(inv.getArgument(2)))
+                .when(broker).send(anyString(), anyString(), any(Message.class));
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        when(template.invoke(any())).thenAnswer(inv ->
+                inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(broker));
+
+        relay = new LendingOutboxRelay(outbox, template, new DirectExchange("LMS.lendings"),
+                new SimpleMeterRegistry(), 2, 1000);
+    }
+
+    @Test
+    void ensureOutboxIsDrainedInOrder() {
+        for (int i = 1; i <= 5; i++)
+            outbox.save(new LendingOutboxEvent(LendingEvents.LENDING_CREATED, ("2024/" + i).getBytes(StandardCharsets.UTF_8)));
+
+        relay.relay();
+
+        assertEquals(0, outbox.count());
+        assertEquals(5, delivered.size());
+        for (int i = 0; i < 5; i++)
+            assertEquals("2024/" + (i + 1), new String(delivered.get(i).getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ensureEventsStayUntilConfirmed() {
+        outbox.save(new LendingOutboxEvent(LendingEvents.LENDING_UPDATED, new byte[]{'{', '}'}));
+        doThrow(new AmqpTimeoutException("no confirm")).when(broker).waitForConfirmsOrDie(anyLong());
+
+        relay.relay();
+        assertEquals(1, outbox.count());
+
+        doNothing().when(broker).waitForConfirmsOrDie(anyLong());
+        relay.relay();
+        assertEquals(0, outbox.count());
+        // at-least-once: the unconfirmed attempt was sent again
+        assertEquals(2, delivered.size());
+    }
+
+    private static class InMemoryOutbox implements LendingOutboxRepository {
+        private final List<LendingOutboxEvent> rows = new ArrayList<>();
+        private long nextPk = 1;
+
+        @Override
+        public LendingOutboxEvent save(LendingOutboxEvent event) {
+            ReflectionTestUtils.setField(event, "pk", nextPk++);
+            rows.add(event);
+            return event;
+        }
+
+        @Override
+        public <S extends LendingOutboxEvent> Iterable<S> saveAll(Iterable<S> events) {
+            events.forEach(this::save);
+            return events;
+        }
+
+        @Override
+        public List<LendingOutboxEvent> findPending(Pageable pageable) {
+            return new ArrayList<>(rows.subList(0, Math.min(pageable.getPageSize(), rows.size())));
+        }
+
+        @Override
+        public int deleteByPkIn(Collection<Long> pks) {
+            int before = rows.size();
+            rows.removeIf(e -> pks.contains(e.getPk()));
+            return before - rows.size();
+        }
+
+        @Override
+        public long count() {
+            return rows.size();
+        }
+    }
+}
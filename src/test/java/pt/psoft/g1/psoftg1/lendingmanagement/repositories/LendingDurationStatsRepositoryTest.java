@@ -0,0 +1,68 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+@DataJpaTest
+class LendingDurationStatsRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private LendingDurationStatsRepository statsRepository;
+
+    @BeforeEach
+    void setUp() {
+        ReaderDetails reader = entityManager.persist(reader(1, "stats@mail.com"));
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        entityManager.persist(new Lending("A", "Book A", reader, 2024, 1, start, start.plusDays(10), 15, 50));
+        entityManager.persist(new Lending("A", "Book A", reader, 2024, 2, start, start.plusDays(20), 15, 50));
+        entityManager.persist(new Lending("A", "Book A", reader, 2024, 3, start, null, 15, 50));
+        entityManager.persist(new Lending("B", "Book B", reader, 2024, 4, start, start.plusDays(4), 15, 50));
+        // stale rows, as left by lost or doubled increments
+        LendingDurationStats a = new LendingDurationStats("A");
+        a.add(99);
+        entityManager.persist(a);
+        entityManager.persist(new LendingDurationStats(LendingDurationStats.ALL));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void ensureRecountComputesTheIsbnsReturnedLendings() {
+        assertThat(statsRepository.recount("A")).isEqualTo(1);
+        entityManager.clear();
+
+        LendingDurationStats a = statsRepository.findById("A").orElseThrow();
+        assertThat(a.getReturnedCount()).isEqualTo(2);
+        assertThat(a.getTotalDays()).isEqualTo(30);
+    }
+
+    @Test
+    void ensureRecountAllComputesEveryReturnedLendingAndMarksItRebuilt() {
+        assertThat(statsRepository.recountAll(LocalDateTime.of(2024, 6, 1, 4, 0))).isEqualTo(1);
+        entityManager.clear();
+
+        LendingDurationStats all = statsRepository.findById(LendingDurationStats.ALL).orElseThrow();
+        assertThat(all.getAverage()).contains(34.0 / 3);
+        assertThat(all.getRebuiltAt()).isEqualTo(LocalDateTime.of(2024, 6, 1, 4, 0));
+    }
+
+    @Test
+    void ensureRecountOfMissingRowChangesNothing() {
+        assertThat(statsRepository.recount("B")).isZero();
+        assertThat(statsRepository.findById("B")).isEmpty();
+    }
+}
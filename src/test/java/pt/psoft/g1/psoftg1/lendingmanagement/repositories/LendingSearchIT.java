@@ -0,0 +1,108 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+/**
+ * Times the lending searches over millions of generated lendings, with the indexes declared on
+ * {@link Lending} and then without them. Opt-in; against the in-memory database by default, or any other
+ * with {@code -Dspring.datasource.url=...}:
+ * <pre>
+ * mvn verify -Dit.test=LendingSearchIT -Dsearch-test.rows=2000000 -DargLine=-Xmx4g
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "search-test.rows", matches = "\\d+")
+@SpringBootTest
+class LendingSearchIT {
+    private static final int CHUNK = 5000, READERS = 1000, LENDINGS_PER_ISBN = 100, RUNS = 50;
+    private static final Map<String, String> INDEXES = Map.of(
+            "idx_lending_reader_returned", "reader_details_pk, returned_date",
+            "idx_lending_isbn_returned", "book_isbn, returned_date",
+            "idx_lending_returned_limit", "returned_date, limit_date",
+            "idx_lending_start_date", "start_date");
+
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final int rows = Integer.getInteger("search-test.rows", 0);
+
+    @Test
+    void indexesSpeedUpTheSearches() {
+        List<ReaderDetails> readers = new ArrayList<>(READERS);
+        for (int i = 1; i <= READERS; i++)
+            readers.add(readerRepository.save(reader(20000 + i, "search" + i + "@mail.com")));
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        for (int from = 1; from <= rows; from += CHUNK) {
+            final int first = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Lending> chunk = new ArrayList<>(CHUNK);
+                for (int seq = first; seq < first + CHUNK && seq <= rows; seq++)
+                    chunk.add(new Lending(isbn(seq / LENDINGS_PER_ISBN), "Generated " + seq, readers.get(seq % READERS),
+                            1990, seq, start.plusDays(seq % 3650), seq % 2 == 0 ? start.plusDays(seq % 3650 + 5) : null, 15, 50));
+                lendingRepository.saveAll(chunk);
+            });
+        }
+
+        Map<String, Supplier<List<?>>> searches = new LinkedHashMap<>();
+        searches.put("reader, exact", () -> lendingRepository.searchLendings(new Page(1, 10), "2024/20500", null, null, null, null));
+        searches.put("isbn, exact", () -> lendingRepository.searchLendings(new Page(1, 10), null, isbn(rows / LENDINGS_PER_ISBN / 2), null, null, null));
+        searches.put("isbn, prefix%", () -> lendingRepository.searchLendings(new Page(1, 10), null, isbn(rows / LENDINGS_PER_ISBN / 2).substring(0, 12) + "%", null, null, null));
+        searches.put("open of a reader", () -> lendingRepository.searchLendings(new Page(1, 10), "2024/20500", null, false, null, null));
+        searches.put("started in a week", () -> lendingRepository.searchLendings(new Page(1, 10), null, null, null, start.plusDays(1000), start.plusDays(1007)));
+
+        Map<String, Double> indexed = time(searches);
+        INDEXES.keySet().forEach(name -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + name));
+        Map<String, Double> unindexed;
+        try {
+            unindexed = time(searches);
+        } finally {
+            INDEXES.forEach((name, columns) -> jdbcTemplate.execute("CREATE INDEX " + name + " ON lending (" + columns + ")"));
+        }
+
+        searches.keySet().forEach(search -> System.out.printf("%-18s over %d lendings: %8.2f ms indexed, %8.2f ms without the indexes%n",
+                search, rows, indexed.get(search), unindexed.get(search)));
+        assertThat(indexed.get("isbn, exact")).isLessThan(unindexed.get("isbn, exact"));
+        assertThat(indexed.get("started in a week")).isLessThan(unindexed.get("started in a week"));
+    }
+
+    /** Mean milliseconds per search, after a warm-up run of each. */
+    private static Map<String, Double> time(Map<String, Supplier<List<?>>> searches) {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        searches.forEach((name, search) -> {
+            search.get();
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++)
+                search.get();
+            millis.put(name, (System.nanoTime() - start) / 1e6 / RUNS);
+        });
+        return millis;
+    }
+
+    private static String isbn(int n) {
+        return String.format("978%010d", n);
+    }
+}
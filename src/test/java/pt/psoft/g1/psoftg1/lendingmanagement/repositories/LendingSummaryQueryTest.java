@@ -0,0 +1,127 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class LendingSummaryQueryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private LendingRepository lendingRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        ReaderDetails first = entityManager.persist(reader(1, "first@mail.com"));
+        ReaderDetails second = entityManager.persist(reader(2, "second@mail.com"));
+        LocalDate start = LocalDate.now().minusDays(30);
+        for (int seq = 1; seq <= 6; seq++)
+            entityManager.persist(new Lending("978000000000" + seq, "Book " + seq, seq % 2 == 0 ? first : second,
+                    2024, seq, start, null, 15, 50));
+        // returned late, so it has a fine
+        entityManager.persist(new Lending("9780000000007", "Book 7", first, 2024, 7, start, start.plusDays(20), 15, 50));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void ensureSearchPageIsOneStatement() {
+        List<LendingSummary> page = lendingRepository.searchLendings(new Page(1, 10), null, null, null, null, null);
+
+        assertThat(page).hasSize(7);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ensureSearchPageCarriesReaderNumberAndFine() {
+        List<LendingSummary> page = lendingRepository.searchLendings(new Page(1, 10), "2024/1", "9780000000007", true, null, null);
+
+        assertThat(page).singleElement().satisfies(summary -> {
+            assertThat(summary.readerNumber()).isEqualTo("2024/1");
+            assertThat(summary.fineCents()).isEqualTo(5 * 50);
+        });
+    }
+
+    @Test
+    void ensureOverduePageIsOneStatement() {
+        List<LendingSummary> page = lendingRepository.getOverdue(new Page(1, 10));
+
+        assertThat(page).hasSize(6).allSatisfy(summary -> assertThat(summary.fineCents()).isNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ensureCursorPageIsOneStatement() {
+        Page page = new Page(1, 3);
+        page.setCursor(new PageCursor("2024/3", Long.MIN_VALUE).encode());
+
+        assertThat(lendingRepository.searchLendings(page, null, null, null, null, null))
+                .extracting(LendingSummary::lendingNumber)
+                .containsExactly("2024/3", "2024/4", "2024/5");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ensureValueWithoutWildcardMatchesExactly() {
+        addLendingOfReader10();
+
+        assertThat(searchNumbers("2024/1", null)).containsExactly("2024/2", "2024/4", "2024/6", "2024/7");
+        assertThat(searchNumbers(null, "9780000000003")).containsExactly("2024/3");
+        assertThat(searchNumbers(null, "978000000000")).isEmpty();
+    }
+
+    @Test
+    void ensureValueEndingInPercentMatchesThePrefix() {
+        addLendingOfReader10();
+
+        assertThat(searchNumbers("2024/1%", null)).containsExactly("2024/2", "2024/4", "2024/6", "2024/7", "2024/8");
+        assertThat(searchNumbers(null, "978000000000%")).hasSize(8);
+    }
+
+    @Test
+    void ensureAnyOtherPatternKeepsItsLikeMeaning() {
+        addLendingOfReader10();
+
+        assertThat(searchNumbers("2024/_", null)).hasSize(7);
+        assertThat(searchNumbers(null, "%3")).containsExactly("2024/3");
+        assertThat(searchNumbers(null, "97800000000_7")).containsExactly("2024/7");
+    }
+
+    /** Reader {@code 2024/10}, whose number starts with that of reader {@code 2024/1}. */
+    private void addLendingOfReader10() {
+        ReaderDetails tenth = entityManager.persist(reader(10, "tenth@mail.com"));
+        entityManager.persist(new Lending("9780000000008", "Book 8", tenth, 2024, 8, LocalDate.now(), null, 15, 50));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<String> searchNumbers(String readerNumber, String isbn) {
+        return lendingRepository.searchLendings(new Page(1, 20), readerNumber, isbn, null, null, null).stream()
+                .map(LendingSummary::lendingNumber)
+                .toList();
+    }
+}
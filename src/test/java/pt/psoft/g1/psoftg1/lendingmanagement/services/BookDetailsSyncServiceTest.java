@@ -0,0 +1,77 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.BookViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.BookDetails;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.BookDetailsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class BookDetailsSyncServiceTest {
+    private BookDetailsRepository repo;
+    private BookDetailsSyncService service;
+    private BookDetails existing;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(BookDetailsRepository.class);
+        service = new BookDetailsSyncService(repo);
+        existing = new BookDetails("9789723716160", "Como se Desenha Uma Casa", "Poesia");
+        when(repo.findByIsbnIn(anyCollection())).thenReturn(List.of(existing));
+    }
+
+    @Test
+    void ensureWholeBatchIsLoadedWithOneQuery() {
+        service.upsertAll(List.of(
+                new BookViewAMQP("9789723716160", "A", "G"),
+                new BookViewAMQP("9789722328296", "B", "G"),
+                new BookViewAMQP("9789897776090", "C", "G")));
+
+        verify(repo, times(1)).findByIsbnIn(anyCollection());
+        verify(repo, never()).findByIsbn(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ensureCreateOnlyStoresMissingBooks() {
+        service.createAll(List.of(
+                new BookViewAMQP("9789723716160", "Changed", "Changed"),
+                new BookViewAMQP("9789722328296", "O Principezinho", "Infantil")));
+
+        ArgumentCaptor<Iterable<BookDetails>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(repo).saveAll(saved.capture());
+        List<BookDetails> created = new ArrayList<>();
+        saved.getValue().forEach(created::add);
+
+        assertEquals(1, created.size());
+        assertEquals("9789722328296", created.get(0).getIsbn());
+        assertEquals("Como se Desenha Uma Casa", existing.getTitle());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ensureLaterEventForSameIsbnWins() {
+        service.upsertAll(List.of(
+                new BookViewAMQP("9789723716160", "First", "G1"),
+                new BookViewAMQP("9789723716160", "Second", "G2"),
+                new BookViewAMQP("9789722328296", "New", "G1"),
+                new BookViewAMQP("9789722328296", "Newer", "G2")));
+
+        assertEquals("Second", existing.getTitle());
+        assertEquals("G2", existing.getGenre());
+
+        ArgumentCaptor<Iterable<BookDetails>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(repo).saveAll(saved.capture());
+        List<BookDetails> created = new ArrayList<>();
+        saved.getValue().forEach(created::add);
+        assertEquals(1, created.size());
+        assertEquals("Newer", created.get(0).getTitle());
+    }
+}
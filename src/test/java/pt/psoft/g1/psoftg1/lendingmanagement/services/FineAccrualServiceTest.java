@@ -0,0 +1,84 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+@DataJpaTest(properties = "fine-accrual.chunk-size=2")
+@Import({FineAccrualService.class, ReaderLendingCountersService.class, ReaderLendingCountersRowCreator.class, SimpleMeterRegistry.class})
+class FineAccrualServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private FineAccrualService service;
+
+    private final LocalDate today = LocalDate.now();
+    private Lending returnedLater;
+
+    @BeforeEach
+    void setUp() {
+        ReaderDetails first = entityManager.persist(reader(1, "first@mail.com"));
+        ReaderDetails second = entityManager.persist(reader(2, "second@mail.com"));
+        // limit date 15 days after start, 50 cents per day
+        lending(first, 1, today.minusDays(20), null);   // 5 days late
+        returnedLater = lending(first, 2, today.minusDays(17), null);   // 2 days late
+        lending(first, 3, today.minusDays(10), null);   // not due yet
+        lending(second, 4, today.minusDays(30), today.minusDays(1));   // already returned
+        lending(second, 5, today.minusDays(16), null);  // 1 day late
+        entityManager.flush();
+    }
+
+    @Test
+    void ensureRunAccruesOpenOverdueLendingsPerReader() {
+        accrueAll();
+
+        assertThat(service.getOutstandingFines("2024/1")).isEqualTo((5 + 2) * 50);
+        assertThat(service.getOutstandingFines("2024/2")).isEqualTo(50);
+        assertThat(service.isUnfinished(today)).isFalse();
+        assertThat(service.begin(today)).isFalse();
+    }
+
+    @Test
+    void ensureReturnedLendingNoLongerCounts() {
+        accrueAll();
+        returnedLater.setReturned(today, null);
+        entityManager.flush();
+
+        assertThat(service.getOutstandingFines("2024/1")).isEqualTo(5 * 50);
+    }
+
+    @Test
+    void ensureInterruptedRunResumesFromCheckpoint() {
+        service.begin(today);
+        assertThat(service.accrueChunk()).isTrue();
+        assertThat(service.isUnfinished(today)).isTrue();
+
+        // e.g. after a restart: the same run continues instead of starting over
+        assertThat(service.begin(today)).isTrue();
+        while (service.accrueChunk()) ;
+
+        assertThat(service.getOutstandingFines("2024/1")).isEqualTo((5 + 2) * 50);
+        assertThat(service.getOutstandingFines("2024/2")).isEqualTo(50);
+    }
+
+    private void accrueAll() {
+        assertThat(service.begin(today)).isTrue();
+        while (service.accrueChunk()) ;
+    }
+
+    private Lending lending(ReaderDetails reader, int seq, LocalDate start, LocalDate returned) {
+        return entityManager.persist(new Lending("978000000000" + seq, "Book " + seq, reader, 2024, seq, start, returned, 15, 50));
+    }
+}
@@ -0,0 +1,157 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.publishers.LendingEventsPublisher;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PageCursor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LendingDueDateIndexTest {
+    private final LocalDate today = LocalDate.now();
+    private LendingRepository repository;
+    private LendingEventsPublisher publisher;
+    private LendingDueDateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(LendingRepository.class);
+        publisher = mock(LendingEventsPublisher.class);
+        when(repository.listOutstandingSummaries()).thenReturn(List.of(
+                open(1, today.minusDays(3)),
+                open(2, today.minusDays(1)),
+                open(3, today.minusDays(3)),
+                open(4, today),
+                open(5, today.plusDays(1)),
+                open(6, today.plusDays(20))));
+        when(repository.findOutstandingPks(anyCollection())).thenAnswer(inv -> new ArrayList<>(inv.<Collection<Long>>getArgument(0)));
+        when(publisher.sendLendingsDueSoon(any(), anyList(), anyInt())).thenReturn(true);
+        when(publisher.sendLendingsOverdue(any(), anyList(), anyInt())).thenReturn(true);
+        index = new LendingDueDateIndex(repository, publisher, new TransactionTemplate(mock(PlatformTransactionManager.class)), 2, 200);
+    }
+
+    @Test
+    void ensureNothingIsServedBeforeLoading() {
+        assertThat(index.getOverdue(new Page(1, 10))).isEmpty();
+    }
+
+    @Test
+    void ensureOverduePagesAreInDueDateOrder() {
+        index.load();
+
+        assertThat(pks(index.getOverdue(new Page(1, 2)).orElseThrow())).containsExactly(1L, 3L);
+        assertThat(pks(index.getOverdue(new Page(2, 2)).orElseThrow())).containsExactly(2L);
+        Page afterFirst = new Page(1, 10, new PageCursor(today.minusDays(3).toString(), 1).encode());
+        assertThat(pks(index.getOverdue(afterFirst).orElseThrow())).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void ensureCatchUpReadsOnlyWhatOtherNodesChangedSinceTheDayBefore() {
+        index.load();
+        // another node returned 1 and lent 7
+        when(repository.listOutstandingSummariesStartedSince(today.minusDays(1))).thenReturn(List.of(open(7, today.minusDays(2))));
+        when(repository.findReturnedPksSince(today.minusDays(1))).thenReturn(List.of(1L));
+
+        index.catchUp();
+
+        assertThat(pks(index.getOverdue(new Page(1, 10)).orElseThrow())).containsExactly(3L, 7L, 2L);
+        verify(repository, times(1)).listOutstandingSummaries();
+    }
+
+    @Test
+    void ensureReturnCommittedDuringCatchUpIsKept() {
+        index.load();
+        // the catch-up still reads 7 as open, but its return commits meanwhile
+        when(repository.listOutstandingSummariesStartedSince(any())).thenAnswer(inv -> {
+            index.returned(List.of(lending(7)));
+            return List.of(open(7, today.minusDays(2)));
+        });
+
+        index.catchUp();
+
+        assertThat(pks(index.getOverdue(new Page(1, 10)).orElseThrow())).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void ensureLendingsBecomingOverdueAreAnnouncedByDay() {
+        index.load();
+
+        index.announce(today.plusDays(2));
+
+        verify(publisher).sendLendingsOverdue(today.plusDays(1), List.of("2024/4"), 200);
+        verify(publisher).sendLendingsOverdue(today.plusDays(2), List.of("2024/5"), 200);
+        verify(publisher, never()).sendLendingsDueSoon(any(), anyList(), anyInt());
+        assertThat(pks(index.getOverdue(new Page(1, 10)).orElseThrow())).containsExactly(1L, 3L, 2L, 4L, 5L);
+    }
+
+    @Test
+    void ensureLendingsDueSoonAreAnnouncedBeforeTheirLimitDate() {
+        index.load();
+
+        index.announce(today.plusDays(18));
+
+        verify(publisher).sendLendingsDueSoon(today.plusDays(18), List.of("2024/6"), 200);
+    }
+
+    @Test
+    void ensureFiredLendingReturnedElsewhereIsDroppedInsteadOfAnnounced() {
+        index.load();
+        when(repository.findOutstandingPks(anyCollection())).thenReturn(List.of(4L));
+
+        index.announce(today.plusDays(2));
+
+        verify(publisher).sendLendingsOverdue(today.plusDays(1), List.of("2024/4"), 200);
+        verify(publisher, never()).sendLendingsOverdue(eq(today.plusDays(2)), anyList(), anyInt());
+        assertThat(pks(index.getOverdue(new Page(1, 10)).orElseThrow())).containsExactly(1L, 3L, 2L, 4L);
+    }
+
+    @Test
+    void ensureFailedAnnouncementIsRetried() {
+        index.load();
+        when(publisher.sendLendingsOverdue(any(), anyList(), anyInt()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(true);
+
+        index.announce(today.plusDays(1));
+        index.announce(today.plusDays(1));
+
+        verify(publisher, times(2)).sendLendingsOverdue(today.plusDays(1), List.of("2024/4"), 200);
+    }
+
+    @Test
+    void ensureTamperedCursorIsRejected() {
+        index.load();
+        Page tampered = new Page(1, 10, new PageCursor("not a date", 1).encode());
+
+        assertThrows(IllegalArgumentException.class, () -> index.getOverdue(tampered));
+    }
+
+    private static List<Long> pks(List<LendingSummary> lendings) {
+        return lendings.stream().map(LendingSummary::pk).toList();
+    }
+
+    private static Lending lending(long pk) {
+        Lending lending = mock(Lending.class);
+        when(lending.getPk()).thenReturn(pk);
+        return lending;
+    }
+
+    private static LendingSummary open(long pk, LocalDate limitDate) {
+        return new LendingSummary(pk, "2024/" + pk, "9782826012092", "Book", limitDate.minusDays(15), limitDate,
+                null, null, "2024/1");
+    }
+}
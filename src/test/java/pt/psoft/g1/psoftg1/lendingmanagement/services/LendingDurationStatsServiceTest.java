@@ -0,0 +1,107 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationStats;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationStatsRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LendingDurationStatsServiceTest {
+
+    private final LendingDurationStatsRepository statsRepository = mock(LendingDurationStatsRepository.class);
+    private final LendingDurationStatsRowCreator rowCreator = mock(LendingDurationStatsRowCreator.class);
+    private final LendingRepository lendingRepository = mock(LendingRepository.class);
+
+    private LendingDurationStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        // runs each recount straight away; the transactions themselves are the database's business
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        service = new LendingDurationStatsService(statsRepository, rowCreator, lendingRepository, transactionTemplate);
+        ReflectionTestUtils.setField(service, "rebuildChunkSize", 2);
+    }
+
+    @Test
+    void ensureRebuildRecountsEveryIsbnThenTheGlobalRow() {
+        when(lendingRepository.findReturnedIsbnsAfter(eq(""), any(Pageable.class))).thenReturn(List.of("A", "B"));
+        when(lendingRepository.findReturnedIsbnsAfter(eq("B"), any(Pageable.class))).thenReturn(List.of("C"));
+        when(statsRepository.findForUpdate(anyString())).thenReturn(Optional.of(new LendingDurationStats("row")));
+
+        service.rebuild();
+
+        InOrder inOrder = inOrder(statsRepository);
+        for (String isbn : List.of("A", "B", "C")) {
+            inOrder.verify(statsRepository).findForUpdate(isbn);
+            inOrder.verify(statsRepository).recount(isbn);
+        }
+        inOrder.verify(statsRepository).findForUpdate(LendingDurationStats.ALL);
+        inOrder.verify(statsRepository).recountAll(any(LocalDateTime.class));
+        verify(lendingRepository, never()).findReturnedIsbnsAfter(eq("C"), any(Pageable.class));
+        verify(rowCreator, never()).create(anyString());
+    }
+
+    @Test
+    void ensureRebuildCreatesMissingRowsBeforeRecountingThem() {
+        when(lendingRepository.findReturnedIsbnsAfter(anyString(), any(Pageable.class))).thenReturn(List.of());
+        when(statsRepository.findForUpdate(LendingDurationStats.ALL))
+                .thenReturn(Optional.empty(), Optional.of(new LendingDurationStats(LendingDurationStats.ALL)));
+
+        service.rebuild();
+
+        InOrder inOrder = inOrder(rowCreator, statsRepository);
+        inOrder.verify(rowCreator).create(LendingDurationStats.ALL);
+        inOrder.verify(statsRepository).findForUpdate(LendingDurationStats.ALL);
+        inOrder.verify(statsRepository).recountAll(any(LocalDateTime.class));
+    }
+
+    @Test
+    void ensureMissingRowIsCreatedAndIncremented() {
+        when(statsRepository.addReturned("A", 3)).thenReturn(0, 1);
+        when(statsRepository.addReturned(LendingDurationStats.ALL, 3)).thenReturn(1);
+        doThrow(new DataIntegrityViolationException("duplicate")).when(rowCreator).create("A");
+
+        service.recordReturned(new Lending("A", "Title", null,
+                2024, 1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 4), 15, 50));
+
+        verify(rowCreator).create("A");
+        verify(statsRepository, times(2)).addReturned("A", 3);
+        verify(rowCreator, never()).create(LendingDurationStats.ALL);
+    }
+
+    @Test
+    void ensureGlobalRowCreatedByAReturnIsNotBuilt() {
+        final var all = new LendingDurationStats(LendingDurationStats.ALL);
+        all.add(3);
+        when(statsRepository.findById(LendingDurationStats.ALL)).thenReturn(Optional.of(all));
+
+        assertThat(service.isBuilt()).isFalse();
+
+        all.markRebuilt(LocalDateTime.now());
+        assertThat(service.isBuilt()).isTrue();
+    }
+
+    @Test
+    void ensureAverageIsEmptyWithoutStats() {
+        when(statsRepository.findById(anyString())).thenReturn(Optional.empty());
+
+        assertThat(service.getAverageDuration()).isEmpty();
+        assertThat(service.getAverageDuration("A")).isEmpty();
+    }
+}
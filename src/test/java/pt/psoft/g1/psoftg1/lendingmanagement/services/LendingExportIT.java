@@ -0,0 +1,135 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+/**
+ * Exports millions of generated lendings under a heap far too small to hold them, and checks the heap
+ * still live after garbage collection doesn't grow from exporting a tenth of them to exporting them all.
+ * The lendings are kept in an H2 file under {@code target/}, with a small page cache, so they don't share
+ * the heap being measured; {@code -Dexport-test.datasource-url=...} points the test at any other database.
+ * Opt-in:
+ * <pre>
+ * mvn verify -Dit.test=LendingExportIT -Dexport-test.rows=3000000 -DargLine=-Xmx96m
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "export-test.rows", matches = "\\d+")
+@SpringBootTest(properties = "spring.datasource.url=${export-test.datasource-url:jdbc:h2:file:./target/export-it/lendings;CACHE_SIZE=8192}")
+class LendingExportIT {
+    private static final int CHUNK = 5000;
+    private static final long MAX_LIVE_HEAP_GROWTH = 16L << 20;
+
+    @Autowired
+    private LendingExportService exportService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final int rows = Integer.getInteger("export-test.rows", 0);
+
+    /** A fresh database file for every run; lendings left by the previous one would collide. */
+    @BeforeAll
+    static void deletePreviousDatabase() throws IOException {
+        Path dir = Path.of("target", "export-it");
+        if (!Files.exists(dir))
+            return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(file);
+        }
+    }
+
+    @Test
+    void exportStaysWithinAFlatHeap() throws Exception {
+        ReaderDetails reader = readerRepository.save(reader(9001, "export@mail.com"));
+        int small = Math.max(CHUNK, rows / 10);
+
+        seed(reader, 1, small);
+        CountingOutputStream smallExport = export(small);
+        seed(reader, small + 1, rows);
+        CountingOutputStream largeExport = export(rows);
+
+        assertThat(largeExport.peakLiveHeap).isLessThan(smallExport.peakLiveHeap + MAX_LIVE_HEAP_GROWTH);
+    }
+
+    /** Each chunk in its own transaction, so the persistence context never holds more than one. */
+    private void seed(ReaderDetails reader, int first, int last) {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        for (int from = first; from <= last; from += CHUNK) {
+            final int chunkFirst = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Lending> chunk = new ArrayList<>(CHUNK);
+                for (int seq = chunkFirst; seq < chunkFirst + CHUNK && seq <= last; seq++)
+                    chunk.add(new Lending("9782826012092", "Generated " + seq, reader, 1990, seq, start, null, 15, 50));
+                lendingRepository.saveAll(chunk);
+            });
+        }
+    }
+
+    private CountingOutputStream export(int expected) throws IOException {
+        CountingOutputStream csv = new CountingOutputStream();
+        long startedAt = System.nanoTime();
+        long exported = exportService.exportLendings(LendingExportService.Filters.of(null), LendingExportFormat.CSV, csv);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        System.out.printf("exported %d lendings, %d MB of CSV, in %.1f s (%.0f rows/s); max heap %d MB, peak live after GC %d MB%n",
+                exported, csv.bytes >> 20, seconds, exported / seconds,
+                Runtime.getRuntime().maxMemory() >> 20, csv.peakLiveHeap >> 20);
+        assertThat(exported).isGreaterThanOrEqualTo(expected);
+        return csv;
+    }
+
+    /**
+     * Discards what it is given, sampling as it goes the heap left after the latest collection: what the
+     * export holds on to, whatever garbage it makes in between.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .toList();
+
+        private long bytes;
+        private long peakLiveHeap;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            long live = 0;
+            for (MemoryPoolMXBean pool : HEAP_POOLS)
+                live += pool.getCollectionUsage().getUsed();
+            peakLiveHeap = Math.max(peakLiveHeap, live);
+        }
+    }
+}
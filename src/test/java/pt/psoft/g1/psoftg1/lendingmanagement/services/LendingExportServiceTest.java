@@ -0,0 +1,73 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LendingExportServiceTest {
+    private LendingRepository repository;
+    private LendingExportService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(LendingRepository.class);
+        // as configured by Spring Boot
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        service = new LendingExportService(repository, objectMapper, 100);
+        when(repository.streamOverdue(anyInt())).thenReturn(Stream.of(
+                new LendingSummary(1L, "2024/1", "9782826012092", "Plain title", LocalDate.of(2024, 1, 1),
+                        LocalDate.of(2024, 1, 16), null, null, "2024/7"),
+                new LendingSummary(2L, "2024/2", "9782826012092", "Title, with \"quotes\"", LocalDate.of(2024, 1, 1),
+                        LocalDate.of(2024, 1, 16), LocalDate.of(2024, 1, 20), 200, "2024/7")));
+    }
+
+    @Test
+    void ensureCsvQuotesOnlyTheFieldsThatNeedIt() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, service.exportOverdue(LendingExportFormat.CSV, out));
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\r\n")).containsExactly(
+                "lendingNumber,readerNumber,bookIsbn,bookTitle,startDate,limitDate,returnedDate,daysOverdue,fineCents",
+                // still open: overdue until today
+                "2024/1,2024/7,9782826012092,Plain title,2024-01-01,2024-01-16,,"
+                        + ChronoUnit.DAYS.between(LocalDate.of(2024, 1, 16), LocalDate.now()) + ",",
+                "2024/2,2024/7,9782826012092,\"Title, with \"\"quotes\"\"\",2024-01-01,2024-01-16,2024-01-20,4,200");
+    }
+
+    @Test
+    void ensureNdjsonWritesOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.exportOverdue(LendingExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1]).startsWith("{\"lendingNumber\":\"2024/2\",\"readerNumber\":\"2024/7\"")
+                .contains("\"returnedDate\":\"2024-01-20\"", "\"fineCents\":200");
+    }
+
+    @Test
+    void ensureBadDatesAreRejectedBeforeExporting() {
+        assertThrows(IllegalArgumentException.class, () -> LendingExportService.Filters.of(
+                new SearchLendingQuery(null, null, null, "01/01/2024", null)));
+        assertThrows(IllegalArgumentException.class, () -> LendingExportFormat.from("xml"));
+    }
+}
@@ -0,0 +1,75 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+// tiny chunks on two workers, so rows are spread over several chunks parsed out of order
+@Transactional
+@SpringBootTest(properties = {"lending-import.chunk-size=2", "lending-import.parallelism=2"})
+class LendingImportServiceTest {
+    @Autowired
+    private LendingImportService importService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+
+    @Test
+    void ensureCsvImportKeepsNumbersAndDatesAndReportsRejectedRows() throws Exception {
+        readerRepository.save(reader(950, "import@mail.com"));
+        String csv = String.join("\n",
+                "lendingNumber,readerNumber,bookIsbn,bookTitle,startDate,limitDate,returnedDate,fineValuePerDayInCents",
+                "2019/1,2024/950,9782826012092,\"Title, quoted\",2019-01-01,2019-01-16,2019-01-20,100",
+                "2019/2,2024/950,9782826012092,,2019-02-01,,,",
+                "2019/1,2024/950,9782826012092,Again,2019-03-01,,,",
+                "2019/3,2024/999,9782826012092,Nobody,2019-03-01,,,",
+                LocalDate.now().getYear() + "/1,2024/950,9782826012092,Now,2019-03-01,,,",
+                "2019/4,2024/950,9782826012092,Bad date,01/03/2019,,,",
+                "2019/5,2024/950,9782826012092,Early return,2019-03-01,,2019-02-01,");
+
+        LendingImportReport report = importService.importLendings(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), LendingExportFormat.CSV);
+
+        assertEquals(7, report.read());
+        assertEquals(2, report.imported());
+        assertThat(report.rejections()).extracting(LendingImportReport.Rejection::line)
+                .containsExactlyInAnyOrder(4L, 5L, 6L, 7L, 8L);
+
+        Lending late = lendingRepository.findByLendingNumber("2019/1").orElseThrow();
+        assertEquals("Title, quoted", late.getBookTitle());
+        assertEquals(LocalDate.of(2019, 1, 16), late.getLimitDate());
+        assertThat(late.getFine()).isPresent();
+        Lending open = lendingRepository.findByLendingNumber("2019/2").orElseThrow();
+        assertEquals("Title Unavailable", open.getBookTitle());
+        assertEquals(LocalDate.of(2019, 2, 16), open.getLimitDate());
+        assertEquals(200, open.getFineValuePerDayInCents());
+    }
+
+    @Test
+    void ensureNdjsonImportIgnoresExportOnlyFields() throws Exception {
+        readerRepository.save(reader(951, "import2@mail.com"));
+        String ndjson = "{\"lendingNumber\":\"2018/7\",\"readerNumber\":\"2024/951\",\"bookIsbn\":\"9782826012092\","
+                + "\"startDate\":\"2018-05-01\",\"returnedDate\":\"2018-05-10\",\"daysOverdue\":0,\"fineCents\":null}\n"
+                + "{not json}\n";
+
+        LendingImportReport report = importService.importLendings(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), LendingExportFormat.NDJSON);
+
+        assertEquals(1, report.imported());
+        assertThat(report.rejections()).extracting(LendingImportReport.Rejection::line).containsExactly(2L);
+        assertThat(lendingRepository.findByLendingNumber("2018/7")).isPresent();
+    }
+}
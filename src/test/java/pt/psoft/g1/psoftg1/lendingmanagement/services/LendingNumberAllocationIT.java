@@ -0,0 +1,88 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+/**
+ * Compares lending numbers taken from {@link LendingNumberAllocator} with the count of this year's lendings
+ * they replace, over a table of generated lendings. Opt-in:
+ * <pre>
+ * mvn verify -Dit.test=LendingNumberAllocationIT -Dallocation-test.rows=200000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "allocation-test.rows", matches = "\\d+")
+@SpringBootTest
+class LendingNumberAllocationIT {
+    private static final int CHUNK = 5000, THREADS = 8, NUMBERS_PER_THREAD = 200;
+
+    @Autowired
+    private LendingNumberAllocator allocator;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final int rows = Integer.getInteger("allocation-test.rows", 0);
+
+    @Test
+    void allocatorOutpacesCountingTheYearsLendings() throws Exception {
+        ReaderDetails reader = readerRepository.save(reader(9002, "allocation@mail.com"));
+        LocalDate today = LocalDate.now();
+        for (int from = 1; from <= rows; from += CHUNK) {
+            final int first = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Lending> chunk = new ArrayList<>(CHUNK);
+                for (int seq = first; seq < first + CHUNK && seq <= rows; seq++)
+                    chunk.add(new Lending("9782826012092", "Generated " + seq, reader, today.getYear(), seq, today, null, 15, 50));
+                lendingRepository.saveAll(chunk);
+            });
+        }
+
+        double counted = throughput("count + 1", () -> lendingRepository.getCountFromCurrentYear() + 1);
+        double allocated = throughput("allocator", () -> allocator.nextSequential(today.getYear()));
+
+        assertThat(allocated).isGreaterThan(counted);
+    }
+
+    private double throughput(String name, IntSupplier next) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(() -> {
+                for (int i = 0; i < NUMBERS_PER_THREAD; i++)
+                    next.getAsInt();
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        for (Future<Void> f : executor.invokeAll(workers))
+            f.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        double perSecond = THREADS * NUMBERS_PER_THREAD / seconds;
+        System.out.printf("%s over %d lendings, %d threads: %.0f numbers/s%n", name, rows, THREADS, perSecond);
+        return perSecond;
+    }
+}
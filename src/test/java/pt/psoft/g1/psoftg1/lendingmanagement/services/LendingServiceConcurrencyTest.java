@@ -0,0 +1,165 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+/** Not @Transactional: every create commits on its own thread, as it would for concurrent requests. */
+@SpringBootTest
+class LendingServiceConcurrencyTest {
+    private static final int CLIENTS = 24;
+
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private ReaderLendingCountersService countersService;
+    @Autowired
+    private ReaderLocks readerLocks;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<ReaderDetails> readers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (ReaderDetails reader : readers)
+            lendingRepository.listOutstandingByReaderNumber(reader.getReaderNumber()).forEach(lendingRepository::delete);
+        readerRepository.deleteAll(readers);
+        for (ReaderDetails reader : readers)
+            countersService.repair(reader.getReaderNumber());
+    }
+
+    @Test
+    void ensureConcurrentCreatesOfOneReaderStopAtThree() throws Exception {
+        addReader(7001);
+
+        AtomicInteger forbidden = new AtomicInteger();
+        List<Throwable> unexpected = createConcurrently(i -> "2024/7001", forbidden);
+
+        assertThat(unexpected).isEmpty();
+        assertThat(forbidden.get()).isEqualTo(CLIENTS - 3);
+        assertThat(lendingRepository.listOutstandingByReaderNumber("2024/7001")).hasSize(3);
+        assertThat(countersService.check()).isEmpty();
+    }
+
+    @Test
+    void ensureConcurrentCreatesOfDifferentReadersAllSucceed() throws Exception {
+        for (int i = 0; i < CLIENTS; i++)
+            addReader(7100 + i);
+
+        AtomicInteger forbidden = new AtomicInteger();
+        List<Throwable> unexpected = createConcurrently(i -> "2024/" + (7100 + i), forbidden);
+
+        assertThat(unexpected).isEmpty();
+        assertThat(forbidden.get()).isZero();
+        for (ReaderDetails reader : readers)
+            assertThat(lendingRepository.listOutstandingByReaderNumber(reader.getReaderNumber())).hasSize(1);
+    }
+
+    @Test
+    void ensureCreateDoesNotWaitForAnotherReadersLock() throws Exception {
+        addReader(7300);
+        addReader(7301);
+        CountDownLatch held = new CountDownLatch(1), release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                readerLocks.lockUntilCompletion(List.of("2024/7300"));
+                held.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            held.await();
+            long start = System.nanoTime();
+            lendingService.create(new CreateLendingRequest("9782826012092", "2024/7301"));
+            double millis = (System.nanoTime() - start) / 1e6;
+            assertThat(release.getCount()).isEqualTo(1);
+            release.countDown();
+            holder.get();
+            System.out.printf("create while another reader's lock was held: %.1f ms%n", millis);
+        }
+    }
+
+    @Test
+    void measureCreatesOfDifferentReadersSideBySide() throws Exception {
+        for (int i = 0; i < CLIENTS; i++)
+            addReader(7400 + i);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++)
+            lendingService.create(new CreateLendingRequest("9782826012092", "2024/" + (7400 + i)));
+        double sequential = CLIENTS / ((System.nanoTime() - start) / 1e9);
+
+        AtomicInteger forbidden = new AtomicInteger();
+        start = System.nanoTime();
+        List<Throwable> unexpected = createConcurrently(i -> "2024/" + (7400 + i), forbidden);
+        double concurrent = CLIENTS / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("%d creates of different readers: %.0f/s one after another, %.0f/s side by side%n",
+                CLIENTS, sequential, concurrent);
+        assertThat(unexpected).isEmpty();
+        assertThat(forbidden.get()).isZero();
+        assertThat(countersService.check()).isEmpty();
+    }
+
+    /** Starts every create at once; returns the failures other than the lending rules. */
+    private List<Throwable> createConcurrently(IntFunction<String> readerNumber,
+                                               AtomicInteger forbidden) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> unexpected = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTS)) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                final CreateLendingRequest request = new CreateLendingRequest("9782826012092", readerNumber.apply(i));
+                done.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        lendingService.create(request);
+                    } catch (LendingForbiddenException e) {
+                        forbidden.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : done) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    unexpected.add(e.getCause());
+                }
+            }
+        }
+        return unexpected;
+    }
+
+    private void addReader(int number) {
+        readers.add(readerRepository.save(reader(number, "concurrent" + number + "@mail.com")));
+    }
+}
@@ -9,7 +9,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 //import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 //import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 //import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 //import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
@@ -24,6 +26,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
 
 
 @Transactional
@@ -35,6 +38,8 @@ class LendingServiceImplTest {
     private LendingRepository lendingRepository;
     @Autowired
     private ReaderRepository readerRepository;
+    @Autowired
+    private ReaderLendingCountersService countersService;
 
     private Lending lending;
     private ReaderDetails readerDetails;
@@ -165,4 +170,51 @@ class LendingServiceImplTest {
     }
 
  */
+
+    @Test
+    void ensureBatchAppliesRulesPerItemAndNumbersConsecutively() {
+        ReaderDetails first = readerRepository.save(reader(901, "batch1@mail.com"));
+        readerRepository.save(reader(902, "batch2@mail.com"));
+        LocalDate today = LocalDate.now();
+        lendingRepository.save(new Lending("9782826012092", "Book", first, 2000, 1, today, null, 15, 50));
+        lendingRepository.save(new Lending("9782826012092", "Book", first, 2000, 2, today, null, 15, 50));
+        countersService.repair("2024/901");
+
+        List<LendingBatchResult> results = lendingService.createAll(List.of(
+                new CreateLendingRequest("9782826012092", "2024/901"),
+                new CreateLendingRequest("9782826012092", "2024/901"),
+                new CreateLendingRequest("9782826012092", "2024/902"),
+                new CreateLendingRequest("9782826012092", "2024/999")));
+
+        assertThat(results).extracting(LendingBatchResult::index).containsExactly(0, 1, 2, 3);
+        assertTrue(results.get(0).isOk());
+        assertThat(results.get(1).error()).isInstanceOf(LendingForbiddenException.class);
+        assertTrue(results.get(2).isOk());
+        assertThat(results.get(3).error()).isInstanceOf(NotFoundException.class);
+        int seq = Integer.parseInt(results.get(0).lending().getLendingNumber().split("/")[1]);
+        assertEquals(today.getYear() + "/" + (seq + 1), results.get(2).lending().getLendingNumber());
+    }
+
+    @Test
+    void ensureBatchReturnReportsConflictsPerItem() {
+        ReaderDetails reader = readerRepository.save(reader(903, "batch3@mail.com"));
+        LocalDate start = LocalDate.now().minusDays(30);
+        Lending late = lendingRepository.save(new Lending("9782826012092", "Book", reader, 2000, 3, start, null, 15, 50));
+        Lending other = lendingRepository.save(new Lending("9782826012092", "Book", reader, 2000, 4, start, null, 15, 50));
+        countersService.repair("2024/903");
+
+        List<LendingBatchResult> results = lendingService.setReturnedAll(List.of(
+                new ReturnLendingRequest("2000/3", late.getVersion(), "fine"),
+                new ReturnLendingRequest("2000/4", other.getVersion() + 1, null),
+                new ReturnLendingRequest("2000/99", 0L, null),
+                new ReturnLendingRequest("2000/3", late.getVersion(), "again")), null);
+
+        assertTrue(results.get(0).isOk());
+        assertThat(results.get(0).lending().getFine()).isPresent();
+        assertThat(results.get(1).error()).isInstanceOf(ConflictException.class);
+        assertThat(results.get(2).error()).isInstanceOf(NotFoundException.class);
+        assertThat(results.get(3).error()).isInstanceOf(ConflictException.class);
+        assertNull(lendingRepository.findByLendingNumber("2000/4").orElseThrow().getReturnedDate());
+        assertThat(countersService.check()).isEmpty();
+    }
 }
@@ -0,0 +1,90 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+/**
+ * A reader with open lendings but no counters row, as every reader is on the first deploy until the startup
+ * check has run. Not @Transactional: the lendings are committed, as they are in production.
+ */
+@SpringBootTest
+class ReaderLendingCountersFirstDeployTest {
+    private static final String ISBN = "9782826012092", READER = "2024/7201";
+
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private ReaderLendingCountersService countersService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ReaderDetails reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = readerRepository.save(reader(7201, "firstdeploy@mail.com"));
+        final LocalDate today = LocalDate.now();
+        lendingRepository.save(new Lending(ISBN, "Book", reader, 2001, 1, today, null, 15, 50));
+        lendingRepository.save(new Lending(ISBN, "Book", reader, 2001, 2, today, null, 15, 50));
+        jdbcTemplate.update("DELETE FROM READER_LENDING_COUNTERS WHERE reader_number = ?", READER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lendingRepository.listByReaderNumberAndIsbn(READER, ISBN).forEach(lendingRepository::delete);
+        readerRepository.delete(reader);
+        countersService.repair(READER);
+    }
+
+    @Test
+    void ensureMissingRowIsBuiltBeforeTheRulesAreChecked() {
+        lendingService.create(new CreateLendingRequest(ISBN, READER));
+
+        assertThat(outstandingCount()).isEqualTo(3);
+        assertThrows(LendingForbiddenException.class, () -> lendingService.create(new CreateLendingRequest(ISBN, READER)));
+    }
+
+    @Test
+    void ensureReplicatedLendingOnMissingRowCountsTheReadersOtherLendings() {
+        final LendingViewAMQP view = new LendingViewAMQP();
+        view.setLendingNumber("2001/3");
+        view.setIsbn(ISBN);
+        view.setReaderNumber(READER);
+        lendingService.create(view);
+
+        assertThat(outstandingCount()).isEqualTo(3);
+    }
+
+    @Test
+    void ensureReturnOnMissingRowLeavesTheReadersOtherLendings() {
+        final Lending first = lendingRepository.findByLendingNumber("2001/1").orElseThrow();
+        lendingService.setReturned("2001/1", new SetLendingReturnedRequest(null), first.getVersion());
+
+        assertThat(outstandingCount()).isEqualTo(1);
+    }
+
+    private int outstandingCount() {
+        return countersService.findByReaderNumbers(List.of(READER)).get(READER).getOutstandingCount();
+    }
+}
@@ -0,0 +1,107 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingCounters;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static pt.psoft.g1.psoftg1.testutils.TestReaders.reader;
+
+@DataJpaTest
+@Import({ReaderLendingCountersService.class, ReaderLendingCountersRowCreator.class, SimpleMeterRegistry.class})
+class ReaderLendingCountersServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ReaderLendingCountersService service;
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    private final LocalDate today = LocalDate.now();
+    private ReaderDetails late;
+    private ReaderDetails busy;
+    private Lending overdue;
+
+    @BeforeEach
+    void setUp() {
+        late = entityManager.persist(reader(1, "late@mail.com"));
+        busy = entityManager.persist(reader(2, "busy@mail.com"));
+        // limit date 15 days after start
+        overdue = lending(late, 1, today.minusDays(20), null);
+        lending(late, 2, today.minusDays(5), null);
+        lending(late, 3, today.minusDays(40), today.minusDays(30));
+        lending(busy, 4, today.minusDays(3), null);
+        lending(busy, 5, today.minusDays(2), null);
+        entityManager.flush();
+        service.repair("2024/1");
+        service.repair("2024/2");
+    }
+
+    @Test
+    void ensureRepairCountsOpenLendingsPerReader() {
+        assertThat(service.check()).isEmpty();
+        ReaderLendingCounters counters = service.findByReaderNumbers(List.of("2024/1")).get("2024/1");
+        assertThat(counters.getOutstandingCount()).isEqualTo(2);
+        assertThat(counters.getEarliestLimitDate()).isEqualTo(today.minusDays(5));
+
+        assertThrows(LendingForbiddenException.class, () -> service.checkMayBorrow("2024/1", today));
+        assertDoesNotThrow(() -> service.checkMayBorrow("2024/2", today));
+    }
+
+    @Test
+    void ensureLentStopsAtThree() {
+        service.lent(List.of(lending(busy, 6, today, null)));
+        assertThrows(LendingForbiddenException.class, () -> service.lent(List.of(lending(busy, 7, today, null))));
+    }
+
+    @Test
+    void ensureReturnRecomputesEarliestLimitDate() {
+        overdue.setReturned(today, null);
+        service.returned(List.of(overdue));
+        entityManager.clear();
+
+        assertThat(service.check()).isEmpty();
+        assertDoesNotThrow(() -> service.checkMayBorrow("2024/1", today));
+    }
+
+    @Test
+    void ensureRepairFixesOnlyTheReadersRow() {
+        // counted, but never stored: the row of 2024/2 is now off by one
+        service.lentElsewhere(List.of(new Lending("9780000000009", "Book 9", busy, 2024, 9, today, null, 15, 50)));
+        assertThat(service.check()).containsOnlyKeys("2024/2");
+
+        service.repair("2024/2");
+        entityManager.clear();
+
+        assertThat(service.check()).isEmpty();
+        assertThat(service.findByReaderNumbers(List.of("2024/2")).get("2024/2").getOutstandingCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ensureReplicatedLendingsPastTheLimitAreCountedAndReported() {
+        final double before = meterRegistry.counter("lendings.replicated.over.limit").count();
+        service.lentElsewhere(List.of(lending(busy, 6, today, null), lending(busy, 7, today, null)));
+        entityManager.clear();
+
+        assertThat(service.findByReaderNumbers(List.of("2024/2")).get("2024/2").getOutstandingCount()).isEqualTo(4);
+        assertThat(meterRegistry.counter("lendings.replicated.over.limit").count() - before).isEqualTo(2);
+    }
+
+    private Lending lending(ReaderDetails reader, int seq, LocalDate start, LocalDate returned) {
+        return entityManager.persist(new Lending("978000000000" + seq, "Book " + seq, reader, 2024, seq, start, returned, 15, 50));
+    }
+}
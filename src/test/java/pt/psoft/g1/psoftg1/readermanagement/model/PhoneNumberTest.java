@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.readermanagement.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneNumberTest {
+    @Test
+    void ensurePhoneNumberMustStartWith9Or2() {
+        assertEquals("912345678", new PhoneNumber("912345678").toString());
+        assertEquals("212345678", new PhoneNumber("212345678").toString());
+        assertThrows(IllegalArgumentException.class, () -> new PhoneNumber("312345678"));
+    }
+
+    @Test
+    void ensurePhoneNumberMustHaveNineCharacters() {
+        assertThrows(IllegalArgumentException.class, () -> new PhoneNumber("91234567"));
+        assertThrows(IllegalArgumentException.class, () -> new PhoneNumber("9123456789"));
+    }
+
+    @Test
+    void ensureRestOfPhoneNumberIsNotChecked() {
+        // the reader service accepts these, so replicated readers must not be rejected here
+        assertEquals("9abcdefgh", new PhoneNumber("9abcdefgh").toString());
+    }
+}
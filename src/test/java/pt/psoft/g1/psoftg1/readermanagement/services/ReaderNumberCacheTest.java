@@ -0,0 +1,85 @@
+package pt.psoft.g1.psoftg1.readermanagement.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ReaderNumberCacheTest {
+
+    private final ReaderRepository readerRepository = mock(ReaderRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    private ReaderNumberCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReaderNumberCache(readerRepository, registry, 2, Duration.ofSeconds(10), clock::get);
+        when(readerRepository.findReaderNumberByUsername("ana")).thenReturn(Optional.of("2024/1"));
+        when(readerRepository.findReaderNumberByUsername("rui")).thenReturn(Optional.of("2024/2"));
+        when(readerRepository.findReaderNumberByUsername("eva")).thenReturn(Optional.of("2024/3"));
+    }
+
+    private double gets(String result) {
+        return registry.get("cache.gets").tag("cache", ReaderNumberCache.CACHE_NAME).tag("result", result).counter().count();
+    }
+
+    @Test
+    void ensureSecondLookupIsServedFromMemory() {
+        assertThat(cache.findReaderNumber("ana")).contains("2024/1");
+        assertThat(cache.findReaderNumber("ana")).contains("2024/1");
+
+        verify(readerRepository, times(1)).findReaderNumberByUsername("ana");
+        assertThat(gets("hit")).isEqualTo(1);
+        assertThat(gets("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void ensureEntryExpiresAfterTtl() {
+        cache.findReaderNumber("ana");
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.findReaderNumber("ana");
+
+        verify(readerRepository, times(2)).findReaderNumberByUsername("ana");
+    }
+
+    @Test
+    void ensureLeastRecentlyUsedIsEvictedBeyondMaxSize() {
+        cache.findReaderNumber("ana");
+        cache.findReaderNumber("rui");
+        cache.findReaderNumber("ana");
+        cache.findReaderNumber("eva");
+
+        assertThat(cache.size()).isEqualTo(2);
+        cache.findReaderNumber("ana");
+        cache.findReaderNumber("rui");
+        verify(readerRepository, times(1)).findReaderNumberByUsername("ana");
+        verify(readerRepository, times(2)).findReaderNumberByUsername("rui");
+        assertThat(registry.get("cache.evictions").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void ensureInvalidateForcesReload() {
+        cache.findReaderNumber("ana");
+        cache.invalidate("ana");
+        cache.findReaderNumber("ana");
+
+        verify(readerRepository, times(2)).findReaderNumberByUsername("ana");
+    }
+
+    @Test
+    void ensureUnknownUsernameIsNotCached() {
+        when(readerRepository.findReaderNumberByUsername("new")).thenReturn(Optional.empty(), Optional.of("2024/4"));
+
+        assertThat(cache.findReaderNumber("new")).isEmpty();
+        assertThat(cache.findReaderNumber("new")).contains("2024/4");
+    }
+}
@@ -0,0 +1,137 @@
+package pt.psoft.g1.psoftg1.readermanagement.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.readermanagement.api.ReaderViewAMQP;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Not @Transactional: every create commits on its own thread, as concurrent deliveries would. */
+@SpringBootTest
+class ReaderServiceConcurrencyTest {
+    private static final int READERS = 200, THREADS = 16;
+    private static final String DOMAIN = "@burst.mail.com";
+
+    @Autowired
+    private ReaderService readerService;
+    @Autowired
+    private ReaderRepository readerRepository;
+
+    private final int year = LocalDate.now().getYear();
+
+    @AfterEach
+    void tearDown() {
+        for (ReaderDetails reader : readerRepository.findAll())
+            if (reader.getUsername() != null && reader.getUsername().endsWith(DOMAIN))
+                readerRepository.delete(reader);
+    }
+
+    @Test
+    void ensureBurstOfReplicatedReadersKeepsTheirNumbersAndStoresEachOnce() throws Exception {
+        final int first = firstFreeNumber();
+        final List<ReaderViewAMQP> deliveries = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            // every event delivered twice, as after a redelivery
+            deliveries.add(view(first + i, "replicated" + i));
+            deliveries.add(view(first + i, "replicated" + i));
+        }
+        Collections.shuffle(deliveries, new Random(42));
+
+        final AtomicInteger duplicates = new AtomicInteger();
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (ReaderViewAMQP delivery : deliveries) {
+            tasks.add(() -> {
+                try {
+                    readerService.create(delivery);
+                } catch (ConflictException | DataIntegrityViolationException e) {
+                    duplicates.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        assertThat(duplicates.get()).isEqualTo(READERS);
+        for (int i = 0; i < READERS; i++)
+            assertThat(readerRepository.findByUsername("replicated" + i + DOMAIN))
+                    .get().extracting(ReaderDetails::getReaderNumber).isEqualTo(year + "/" + (first + i));
+    }
+
+    @Test
+    void ensureReadersCreatedHereNeverTakeAReplicatedNumber() throws Exception {
+        final int first = firstFreeNumber();
+        final Set<String> replicated = new HashSet<>();
+        final List<Callable<Void>> replication = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            final ReaderViewAMQP view = view(first + i, "replicated" + i);
+            replicated.add(view.getReaderNumber());
+            replication.add(() -> {
+                readerService.create(view);
+                return null;
+            });
+        }
+        runConcurrently(replication);
+
+        final List<Callable<Void>> local = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            final CreateReaderRequest request = new CreateReaderRequest("local" + i + DOMAIN, "Password1",
+                    "Local Reader", "2000-01-01", "912345678", true, false, false, null, null);
+            local.add(() -> {
+                readerService.create(request);
+                return null;
+            });
+        }
+        runConcurrently(local);
+
+        final Set<String> localNumbers = new HashSet<>();
+        for (int i = 0; i < READERS; i++)
+            localNumbers.add(readerRepository.findByUsername("local" + i + DOMAIN).orElseThrow().getReaderNumber());
+        assertThat(localNumbers).hasSize(READERS).doesNotContainAnyElementsOf(replicated);
+    }
+
+    /** Past every reader number of this year already stored, so the test's numbers are its own. */
+    private int firstFreeNumber() {
+        final Integer max = readerRepository.getMaxSequenceFromYear(year + "/%");
+        return (max == null ? 0 : max) + 1;
+    }
+
+    private ReaderViewAMQP view(int number, String name) {
+        final ReaderViewAMQP view = new ReaderViewAMQP();
+        view.setReaderNumber(year + "/" + number);
+        view.setVersion(0L);
+        view.setUserId((long) number);
+        view.setUsername(name + DOMAIN);
+        view.setPassword("Password1");
+        view.setFullName("Replicated Reader");
+        view.setBirthDate("2000-01-01");
+        view.setPhoneNumber("912345678");
+        view.setGdpr(true);
+        return view;
+    }
+
+    private static void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (Future<Void> done : executor.invokeAll(tasks))
+                done.get();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.BookViewAMQP;
+import pt.psoft.g1.psoftg1.lendingmanagement.api.LendingViewAMQP;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmqpJsonCodecTest {
+    private final AmqpJsonCodec codec = new AmqpJsonCodec(Jackson2ObjectMapperBuilder.json().build());
+
+    @Test
+    void ensureLendingSurvivesRoundTrip() throws Exception {
+        final var view = new LendingViewAMQP("2024/1", "9789723716160", "2024/2",
+                LocalDate.of(2024, 2, 15), "Great book", 3L, false);
+
+        final Message message = codec.toMessage(view, new MessageProperties());
+
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, message.getMessageProperties().getContentType());
+        assertEquals(view, codec.decode(message, LendingViewAMQP.class));
+    }
+
+    @Test
+    void ensureUnknownBookFieldsAreIgnored() throws Exception {
+        final byte[] body = "{\"isbn\":\"9789723716160\",\"title\":\"Como se Desenha Uma Casa\",\"description\":\"x\"}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        final BookViewAMQP book = codec.decode(body, BookViewAMQP.class);
+
+        assertEquals("9789723716160", book.getIsbn());
+        assertNull(book.getGenre());
+    }
+}
@@ -0,0 +1,42 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringUtilsCustomTest {
+
+    private static final Pattern ALPHANUMERIC = Pattern.compile("^[\\p{L}0-9\\s'-]*$");
+
+    @Test
+    void ensureIsAlphanumericAgreesWithThePattern() {
+        for (String str : List.of("", "Some name", "Manuel António Pina", "O'Neil-Smith", "Ricardo!", "R2D2",
+                "tab\there", "line\nbreak", "non breaking", "Ñandú", "𐐀", "😀", "١٢٣", "a_b", "a.b")) {
+            assertEquals(ALPHANUMERIC.matcher(str).matches(), StringUtilsCustom.isAlphanumeric(str), str);
+        }
+    }
+
+    @Test
+    void ensureIsIsoDateOnlyAcceptsYearMonthDay() {
+        assertTrue(StringUtilsCustom.isIsoDate("2000-01-31"));
+        assertFalse(StringUtilsCustom.isIsoDate("2000-1-31"));
+        assertFalse(StringUtilsCustom.isIsoDate("2000/01/31"));
+        assertFalse(StringUtilsCustom.isIsoDate("20000-01-31"));
+        assertFalse(StringUtilsCustom.isIsoDate("2000-0a-31"));
+    }
+
+    @Test
+    void ensureIsEmailAddressRejectsMalformedAddresses() {
+        assertTrue(StringUtilsCustom.isEmailAddress("manuel@gmail.com"));
+        assertTrue(StringUtilsCustom.isEmailAddress("a.b+c@sub.example.pt"));
+        assertFalse(StringUtilsCustom.isEmailAddress("@gmail.com"));
+        assertFalse(StringUtilsCustom.isEmailAddress("manuel@"));
+        assertFalse(StringUtilsCustom.isEmailAddress("manuel@@gmail.com"));
+        assertFalse(StringUtilsCustom.isEmailAddress("manuel@gmail..com"));
+        assertFalse(StringUtilsCustom.isEmailAddress("manuel@gmail.com."));
+        assertFalse(StringUtilsCustom.isEmailAddress("manuel @gmail.com"));
+    }
+}
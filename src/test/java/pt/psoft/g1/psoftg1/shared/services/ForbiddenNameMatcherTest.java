@@ -0,0 +1,62 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForbiddenNameMatcherTest {
+
+    @Test
+    void ensureEveryContainedNameIsFound() {
+        final var matcher = ForbiddenNameMatcher.of(List.of("he", "she", "his", "hers"));
+
+        assertThat(matcher.findContainedIn("ushers")).containsExactly("she", "he", "hers");
+        assertTrue(matcher.containsAny("ushers"));
+        assertFalse(matcher.containsAny("hi there"));
+    }
+
+    @Test
+    void ensureMatchingIsCaseSensitiveSubstring() {
+        final var matcher = ForbiddenNameMatcher.of(List.of("Batman"));
+
+        assertTrue(matcher.containsAny("SuperBatmanJunior"));
+        assertFalse(matcher.containsAny("batman"));
+    }
+
+    @Test
+    void ensureBlankAndRepeatedNamesAreIgnored() {
+        final var matcher = ForbiddenNameMatcher.of(Arrays.asList("Hulk", "", " ", null, "Hulk"));
+
+        assertEquals(1, matcher.size());
+        assertFalse(matcher.containsAny("Manuel"));
+    }
+
+    @Test
+    void ensureMatcherAgreesWithCheckingEachName() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            final List<String> names = new ArrayList<>();
+            for (int i = random.nextInt(8); i > 0; i--)
+                names.add(randomString(random, 1 + random.nextInt(4)));
+            final var matcher = ForbiddenNameMatcher.of(names);
+
+            final String text = randomString(random, random.nextInt(15));
+            final Set<String> expected = new HashSet<>();
+            for (String name : names)
+                if (text.contains(name)) expected.add(name);
+
+            assertEquals(expected, new HashSet<>(matcher.findContainedIn(text)), names + " in " + text);
+            assertEquals(!expected.isEmpty(), matcher.containsAny(text));
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            sb.append((char) ('a' + random.nextInt(3)));
+        return sb.toString();
+    }
+}
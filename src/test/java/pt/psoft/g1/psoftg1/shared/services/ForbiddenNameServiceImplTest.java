@@ -0,0 +1,64 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(ForbiddenNameServiceImpl.class)
+class ForbiddenNameServiceImplTest {
+
+    @Autowired
+    private ForbiddenNameServiceImpl service;
+    @Autowired
+    private ForbiddenNameRepository repo;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void ensureBundledFileIsImportedOnceWithoutRepeats() {
+        service.loadDataFromFile("forbiddenNames.txt");
+        service.loadDataFromFile("forbiddenNames.txt");
+
+        assertThat(repo.findAllNames()).doesNotHaveDuplicates().contains("Batman", "Hulk");
+        assertThat(service.findContainedIn("Super Batman")).containsExactly("Batman");
+    }
+
+    @Test
+    void ensureImportIsOneQueryAndBatchedInserts() {
+        final int names = 10_000;
+
+        final long start = System.nanoTime();
+        final int inserted = service.importNames(Stream.concat(
+                IntStream.range(0, names).mapToObj(i -> "Forbidden" + i),
+                Stream.of("Forbidden1", "", "Forbidden2")));
+        entityManager.flush();
+        final long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(" [x] Imported " + inserted + " forbidden names in " + elapsedMs + " ms, "
+                + statistics.getPrepareStatementCount() + " statements prepared");
+
+        assertThat(inserted).isEqualTo(names);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(names);
+        // one select of the stored names, the id sequence, and the insert batches; not one round trip per name
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(names / 10);
+    }
+}
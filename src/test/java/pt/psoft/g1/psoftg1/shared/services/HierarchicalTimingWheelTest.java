@@ -0,0 +1,66 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void ensureTimersFireOnTheirDeadlineOnAnyLevel() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(60);
+        // first level, second level across several turns, and the overflow
+        List<Long> deadlines = List.of(61L, 63L, 64L, 123L, 124L, 200L, 4095L, 4160L, 9000L, 300_000L);
+        for (long deadline : deadlines)
+            wheel.schedule(deadline, deadline);
+
+        for (long deadline : deadlines) {
+            assertEquals(List.of(), wheel.advanceTo(deadline - 1));
+            assertEquals(List.of(deadline), wheel.advanceTo(deadline));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void ensureCancelledTimersNeverFire() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(0);
+        HierarchicalTimingWheel.Timer<String> cancelled = wheel.schedule(100, "cancelled");
+        wheel.schedule(100, "kept");
+
+        wheel.cancel(cancelled);
+        wheel.cancel(cancelled);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advanceTo(200));
+    }
+
+    @Test
+    void ensureRandomTimersFireInDeadlineOrder() {
+        Random random = new Random(42);
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1000);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            long deadline = 1001 + random.nextInt(20_000);
+            wheel.schedule(deadline, deadline);
+            expected.add(deadline);
+        }
+        expected.sort(null);
+
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1000; tick <= 21_000; tick += 1 + random.nextInt(300))
+            fired.addAll(wheel.advanceTo(tick));
+        fired.addAll(wheel.advanceTo(21_001));
+
+        assertEquals(expected, fired);
+    }
+
+    @Test
+    void ensureDeadlineMustBeInTheFuture() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10);
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(10, "now"));
+    }
+}
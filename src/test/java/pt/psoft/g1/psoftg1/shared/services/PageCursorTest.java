@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+    @Test
+    void ensureCursorSurvivesEncoding() {
+        final var cursor = new PageCursor("2024/17", 42L);
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void ensureSortKeyMayContainSeparator() {
+        final var cursor = new PageCursor("a|b", 7L);
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void ensureInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("bm9zZXBhcmF0b3I"));
+    }
+
+    @Test
+    void ensureDateSortKeyIsParsed() {
+        assertEquals(LocalDate.of(2024, 3, 1), PageCursor.decode(new PageCursor("2024-03-01", 7L).encode()).dateSortKey());
+    }
+
+    @Test
+    void ensureInvalidDateSortKeyIsRejected() {
+        final var tampered = PageCursor.decode(new PageCursor("2024/17", 7L).encode());
+        assertThrows(IllegalArgumentException.class, tampered::dateSortKey);
+    }
+}
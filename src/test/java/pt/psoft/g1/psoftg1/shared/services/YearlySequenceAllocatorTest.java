@@ -0,0 +1,210 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+import pt.psoft.g1.psoftg1.shared.repositories.YearlySequenceRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YearlySequenceAllocatorTest {
+    private SequenceBlockLeaser leaser;
+    private int leases;
+
+    @BeforeEach
+    void setUp() {
+        leaser = newLeaser();
+        leases = 0;
+    }
+
+    /** A leaser over its own sequence table, as a node with its own database has. */
+    private SequenceBlockLeaser newLeaser() {
+        // the pessimistic row lock of the real repository is stood in for by synchronizing the lease
+        return new SequenceBlockLeaser(new InMemoryYearlySequenceRepository()) {
+            @Override
+            public synchronized long leaseBlock(String sequenceName, int year, int blockSize, int nodeIndex,
+                                                int nodeCount, LongSupplier seed) {
+                leases++;
+                return super.leaseBlock(sequenceName, year, blockSize, nodeIndex, nodeCount, seed);
+            }
+        };
+    }
+
+    @Test
+    void ensureBlockSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new YearlySequenceAllocator("TEST", 0, leaser, year -> 0));
+    }
+
+    @Test
+    void ensureSequenceContinuesFromSeed() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, leaser, year -> 41);
+        assertEquals(42, allocator.next(2024));
+        assertEquals(43, allocator.next(2024));
+    }
+
+    @Test
+    void ensureYearsAreIndependent() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, leaser, year -> 0);
+        assertEquals(1, allocator.next(2023));
+        assertEquals(2, allocator.next(2023));
+        assertEquals(1, allocator.next(2024));
+    }
+
+    @Test
+    void ensureDatabaseIsOnlyHitOncePerBlock() {
+        final var allocator = new YearlySequenceAllocator("TEST", 50, leaser, year -> 0);
+        for (int i = 0; i < 500; i++)
+            allocator.next(2024);
+        assertEquals(10, leases);
+    }
+
+    @Test
+    void ensureValueTakenElsewhereInsideTheBlockIsSkipped() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, leaser, year -> 0);
+        assertEquals(1, allocator.next(2024));
+        allocator.advancePast(2024, 5);
+        assertEquals(6, allocator.next(2024));
+        assertEquals(1, leases);
+    }
+
+    @Test
+    void ensureValueTakenElsewhereBeyondTheBlockIsNeverLeased() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, leaser, year -> 0);
+        assertEquals(1, allocator.next(2024));
+        allocator.advancePast(2024, 25);
+        for (int i = 2; i <= 10; i++)
+            assertEquals(i, allocator.next(2024));
+        assertEquals(26, allocator.next(2024));
+    }
+
+    @Test
+    void ensureValueTakenElsewhereBeforeFirstLeaseIsSkipped() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, leaser, year -> 3);
+        allocator.advancePast(2024, 7);
+        assertEquals(8, allocator.next(2024));
+    }
+
+    @Test
+    void ensureNodeIndexMustBeWithinNodeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new YearlySequenceAllocator("TEST", 10, 2, 2, leaser, year -> 0));
+        assertThrows(IllegalArgumentException.class, () -> new YearlySequenceAllocator("TEST", 10, -1, 2, leaser, year -> 0));
+    }
+
+    @Test
+    void ensureNodeOnlyLeasesItsOwnBlocks() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, 1, 3, leaser, year -> 0);
+        assertEquals(11, allocator.next(2024));
+        for (int i = 12; i <= 20; i++)
+            assertEquals(i, allocator.next(2024));
+        assertEquals(41, allocator.next(2024));
+    }
+
+    @Test
+    void ensureSeedInsideAnotherNodesBlockMovesToTheNextOwnBlock() {
+        // the highest number in the database is one replicated from node 0
+        final var allocator = new YearlySequenceAllocator("TEST", 10, 1, 2, leaser, year -> 23);
+        assertEquals(31, allocator.next(2024));
+    }
+
+    @Test
+    void ensureValueOfAnotherNodesBlockIsIgnored() {
+        final var allocator = new YearlySequenceAllocator("TEST", 10, 0, 2, leaser, year -> 0);
+        assertEquals(1, allocator.next(2024));
+        allocator.advancePast(2024, 15);
+        allocator.advancePast(2024, 35);
+        assertEquals(2, allocator.next(2024));
+        assertEquals(1, leases);
+    }
+
+    @Test
+    void ensureNodesWithTheirOwnSequenceTableNeverCollide() throws Exception {
+        final int threadsPerNode = 8, valuesPerThread = 5_000;
+        final List<YearlySequenceAllocator> nodes = List.of(
+                new YearlySequenceAllocator("TEST", 20, 0, 2, newLeaser(), year -> 0),
+                new YearlySequenceAllocator("TEST", 20, 1, 2, newLeaser(), year -> 0));
+        final Set<Long> values = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(nodes.size() * threadsPerNode);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (YearlySequenceAllocator node : nodes) {
+            for (int t = 0; t < threadsPerNode; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < valuesPerThread; i++) {
+                        final long value = node.next(2024);
+                        assertTrue(values.add(value), "value " + value + " handed out by both nodes");
+                        // replication of the other node's lendings, racing with the allocations
+                        for (YearlySequenceAllocator other : nodes)
+                            if (other != node)
+                                other.advancePast(2024, value);
+                    }
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<?> f : futures)
+            f.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(nodes.size() * threadsPerNode * valuesPerThread, values.size());
+    }
+
+    @Test
+    void ensureValuesAreUniqueAcrossThreadsAndNodes() throws Exception {
+        final int nodes = 4, threadsPerNode = 8, valuesPerThread = 5_000;
+        final Set<Long> values = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int n = 0; n < nodes; n++) {
+            final var node = new YearlySequenceAllocator("TEST", 20, leaser, year -> 0);
+            for (int t = 0; t < threadsPerNode; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < valuesPerThread; i++)
+                        assertTrue(values.add(node.next(2024)), "duplicate value handed out");
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<?> f : futures)
+            f.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(nodes * threadsPerNode * valuesPerThread, values.size());
+        assertTrue(values.stream().allMatch(v -> v > 0));
+    }
+
+    private static class InMemoryYearlySequenceRepository implements YearlySequenceRepository {
+        private final Map<String, YearlySequence> rows = new HashMap<>();
+
+        @Override
+        public Optional<YearlySequence> findForUpdate(String sequenceName, int year) {
+            return Optional.ofNullable(rows.get(sequenceName + "/" + year));
+        }
+
+        @Override
+        public YearlySequence save(YearlySequence yearlySequence) {
+            rows.put(yearlySequence.getSequenceName() + "/" + yearlySequence.getYear(), yearlySequence);
+            return yearlySequence;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.testutils;
+
+import pt.psoft.g1.psoftg1.readermanagement.model.BirthDate;
+import pt.psoft.g1.psoftg1.readermanagement.model.PhoneNumber;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderNumber;
+
+import java.util.List;
+
+/**
+ * Valid readers for tests that only care about the reader number, e.g. to lend to. Not persisted.
+ */
+public class TestReaders {
+
+    /** Reader {@code 2024/number}, with a couple of interests so that loading them by accident shows up. */
+    public static ReaderDetails reader(final int number, final String username) {
+        return new ReaderDetails(new ReaderNumber(2024, number), new BirthDate(2000, 1, 1),
+                new PhoneNumber("912345678"), username, "Reader " + number, true, false, false, null,
+                List.of("Fiction", "Poetry"));
+    }
+}